@@ -0,0 +1,96 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.antonjohansson.elasticsearchshell.client.BulkFile.Batch;
+
+/**
+ * Measures how fast a {@link BulkFile} is split into batches, which bounds the rate that a bulk load can send at.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BulkFileBenchmark
+{
+    @Param({"100000"})
+    int actionCount;
+
+    @Param({"1000"})
+    int batchSize;
+
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        file = Files.createTempFile("bulk-benchmark", ".ndjson");
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8))
+        {
+            for (int i = 0; i < actionCount; i++)
+            {
+                writer.write("{\"index\":{\"_id\":\"" + i + "\"}}\n");
+                writer.write("{\"name\":\"document-" + i + "\",\"number\":" + i + ",\"text\":\"lorem ipsum dolor sit amet, consectetur adipiscing elit\"}\n");
+            }
+        }
+    }
+
+    @TearDown
+    public void tearDown() throws IOException
+    {
+        Files.delete(file);
+    }
+
+    /**
+     * Splits the whole file, returning the number of actions that were found.
+     */
+    @Benchmark
+    public int split() throws IOException
+    {
+        int actions = 0;
+        try (BulkFile input = BulkFile.open(file))
+        {
+            for (Batch batch = input.next(batchSize, Integer.MAX_VALUE); batch != null; batch = input.next(batchSize, Integer.MAX_VALUE))
+            {
+                actions += batch.getActions();
+            }
+        }
+        return actions;
+    }
+}
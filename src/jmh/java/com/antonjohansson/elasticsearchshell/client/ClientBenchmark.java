@@ -0,0 +1,119 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+import com.antonjohansson.elasticsearchshell.domain.ClusterHealth;
+import com.antonjohansson.elasticsearchshell.domain.IndexMappings;
+import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsContainer;
+import com.antonjohansson.elasticsearchshell.domain.node.Node;
+
+/**
+ * Measures end-to-end calls of {@link Client}, against a {@link FakeElasticsearch fake cluster}, for each
+ * {@link Transport} and {@link Codec}.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ClientBenchmark
+{
+    @Param({"cxf", "jdk"})
+    String transport;
+
+    @Param({"json", "smile"})
+    String format;
+
+    @Param({"100"})
+    int nodeCount;
+
+    @Param({"10", "1000"})
+    int indexCount;
+
+    private FakeElasticsearch server;
+    private Client client;
+    private String lastNodeName;
+    private String lastIndexName;
+
+    @Setup
+    public void setUp() throws IOException
+    {
+        server = FakeElasticsearch.builder()
+                .nodes(nodeCount)
+                .indices(indexCount)
+                .start();
+
+        Connection connection = server.connection();
+        connection.setCacheSize(0);
+        connection.setTransport(transport);
+        connection.setFormat(format);
+        client = new Client(connection, new PasswordEncrypter());
+
+        lastNodeName = FakeElasticsearch.getNodeName(nodeCount - 1);
+        lastIndexName = FakeElasticsearch.getIndexName(indexCount - 1);
+    }
+
+    @TearDown
+    public void tearDown()
+    {
+        client.close();
+        server.close();
+    }
+
+    @Benchmark
+    public ClusterHealth getClusterHealth()
+    {
+        return client.getClusterHealth();
+    }
+
+    @Benchmark
+    public Map<String, IndexMappings> getMappings()
+    {
+        return client.getMappings();
+    }
+
+    @Benchmark
+    public Optional<IndexStatsContainer> getIndexStats()
+    {
+        return client.getIndexStats(lastIndexName);
+    }
+
+    @Benchmark
+    public Node getNodeInfo()
+    {
+        return client.getNodeInfo(lastNodeName);
+    }
+}
@@ -0,0 +1,243 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.antonjohansson.elasticsearchshell.domain.ClusterHealth;
+import com.antonjohansson.elasticsearchshell.domain.IndexMappings;
+import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsContainer;
+import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsResult;
+import com.antonjohansson.elasticsearchshell.domain.node.Node;
+import com.antonjohansson.elasticsearchshell.domain.node.NodesInfo;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Measures decoding of responses, both by binding whole bodies and by streaming them the way {@link Client} does, in
+ * each {@link Codec}.
+ * <p>
+ * Each case is bound through the {@link ObjectMapper} for every call ({@code mapper}), with the cached readers of
+ * {@link Codec} ({@code reader}), or with readers whose binding is generated by Afterburner ({@code afterburner}).
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DecodingBenchmark
+{
+    /**
+     * Responses that grow with the number of nodes.
+     */
+    @State(Scope.Benchmark)
+    public static class Nodes
+    {
+        @Param({"json", "smile", "cbor"})
+        String format;
+
+        @Param({"mapper", "reader", "afterburner"})
+        String binding;
+
+        @Param({"1", "100", "1000"})
+        int nodeCount;
+
+        Binder binder;
+        byte[] clusterHealth;
+        byte[] nodesInfo;
+        String lastNodeName;
+
+        @Setup
+        public void setUp()
+        {
+            Codec codec = Codec.of(format);
+            binder = new Binder(codec, binding);
+            clusterHealth = Payloads.encode(codec, Payloads.clusterHealth());
+            nodesInfo = Payloads.encode(codec, Payloads.nodesInfo(nodeCount));
+            lastNodeName = Payloads.getNodeName(nodeCount - 1);
+        }
+    }
+
+    /**
+     * Responses that grow with the number of indices.
+     */
+    @State(Scope.Benchmark)
+    public static class Indices
+    {
+        @Param({"json", "smile", "cbor"})
+        String format;
+
+        @Param({"mapper", "reader", "afterburner"})
+        String binding;
+
+        @Param({"10", "1000", "50000"})
+        int indexCount;
+
+        Binder binder;
+        JavaType mappingsType;
+        byte[] indexStats;
+        byte[] mappings;
+        String lastIndexName;
+
+        @Setup
+        public void setUp()
+        {
+            Codec codec = Codec.of(format);
+            binder = new Binder(codec, binding);
+            mappingsType = codec.getMapper().getTypeFactory().constructMapType(Map.class, String.class, IndexMappings.class);
+            indexStats = Payloads.encode(codec, Payloads.indexStats(indexCount));
+            mappings = Payloads.encode(codec, Payloads.mappings(indexCount));
+            lastIndexName = Payloads.getIndexName(indexCount - 1);
+        }
+    }
+
+    @Benchmark
+    public ClusterHealth clusterHealth(Nodes state) throws IOException
+    {
+        return state.binder.read(state.clusterHealth, ClusterHealth.class);
+    }
+
+    @Benchmark
+    public NodesInfo nodesInfo(Nodes state) throws IOException
+    {
+        return state.binder.read(state.nodesInfo, NodesInfo.class);
+    }
+
+    /**
+     * Finds the last node by name, binding one node at a time.
+     */
+    @Benchmark
+    public Node nodesInfoStreamed(Nodes state) throws IOException
+    {
+        try (JsonParser parser = state.binder.createParser(state.nodesInfo))
+        {
+            Node[] result = new Node[1];
+            if (JsonStreamReader.moveTo(parser, "nodes"))
+            {
+                JsonStreamReader.forEachField(parser, (nodeId, nodeParser) ->
+                {
+                    Node node = state.binder.read(nodeParser, Node.class);
+                    if (state.lastNodeName.equals(node.getName()))
+                    {
+                        result[0] = node;
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            return result[0];
+        }
+    }
+
+    @Benchmark
+    public IndexStatsResult indexStats(Indices state) throws IOException
+    {
+        return state.binder.read(state.indexStats, IndexStatsResult.class);
+    }
+
+    /**
+     * Finds the statistics of the last index, skipping all other indices without binding them.
+     */
+    @Benchmark
+    public IndexStatsContainer indexStatsStreamed(Indices state) throws IOException
+    {
+        try (JsonParser parser = state.binder.createParser(state.indexStats))
+        {
+            if (JsonStreamReader.moveTo(parser, "indices") && JsonStreamReader.moveToField(parser, state.lastIndexName))
+            {
+                return state.binder.read(parser, IndexStatsContainer.class);
+            }
+            return null;
+        }
+    }
+
+    @Benchmark
+    public Map<String, IndexMappings> mappings(Indices state) throws IOException
+    {
+        return state.binder.read(state.mappings, state.mappingsType);
+    }
+
+    /**
+     * Binds content in one of the ways that are compared.
+     */
+    static final class Binder
+    {
+        private final Codec codec;
+        private final ObjectMapper mapper;
+        private final boolean perCall;
+        private final boolean afterburner;
+        private final Map<Type, ObjectReader> readers = new HashMap<>();
+
+        Binder(Codec codec, String binding)
+        {
+            this.codec = codec;
+            this.perCall = binding.equals("mapper");
+            this.afterburner = binding.equals("afterburner");
+            this.mapper = afterburner ? codec.getMapper().copy().registerModule(new AfterburnerModule()) : codec.getMapper();
+        }
+
+        JsonParser createParser(byte[] content) throws IOException
+        {
+            return mapper.getFactory().createParser(content);
+        }
+
+        <T> T read(byte[] content, Type type) throws IOException
+        {
+            if (perCall)
+            {
+                return mapper.readValue(content, mapper.constructType(type));
+            }
+            return getReader(type).readValue(content);
+        }
+
+        <T> T read(JsonParser parser, Class<T> type) throws IOException
+        {
+            if (perCall)
+            {
+                return parser.readValueAs(type);
+            }
+            return getReader(type).readValue(parser);
+        }
+
+        private ObjectReader getReader(Type type)
+        {
+            if (afterburner)
+            {
+                return readers.computeIfAbsent(type, key -> mapper.readerFor(mapper.constructType(key)));
+            }
+            return codec.getReader(type);
+        }
+    }
+}
@@ -0,0 +1,151 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Generates responses of Elasticsearch at realistic sizes, for benchmarks.
+ */
+final class Payloads
+{
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final int FIELDS_PER_INDEX = 10;
+
+    // Prevent instantiation
+    private Payloads()
+    {
+    }
+
+    /**
+     * Gets the response of {@code /_cluster/health}.
+     */
+    static JsonNode clusterHealth()
+    {
+        ObjectNode health = NODES.objectNode();
+        health.put("cluster_name", "benchmark-cluster");
+        health.put("status", "green");
+        health.put("timed_out", false);
+        health.put("number_of_nodes", 3);
+        health.put("number_of_data_nodes", 3);
+        health.put("active_primary_shards", 1000);
+        health.put("active_shards", 2000);
+        health.put("relocating_shards", 0);
+        health.put("initializing_shards", 0);
+        health.put("unassigned_shards", 0);
+        health.put("active_shards_percent_as_number", 100.0);
+        return health;
+    }
+
+    /**
+     * Gets the response of {@code /_nodes/stats/os} for a cluster with the given number of nodes.
+     */
+    static JsonNode nodesInfo(int nodeCount)
+    {
+        ObjectNode nodesInfo = NODES.objectNode();
+        nodesInfo.put("cluster_name", "benchmark-cluster");
+        ObjectNode nodes = nodesInfo.putObject("nodes");
+        for (int i = 0; i < nodeCount; i++)
+        {
+            ObjectNode node = nodes.putObject(getNodeId(i));
+            node.put("name", getNodeName(i));
+            ObjectNode os = node.putObject("os");
+            os.put("timestamp", 1494442186000L + i);
+            os.putObject("cpu").put("percent", i % 100);
+            ObjectNode memory = os.putObject("mem");
+            memory.put("total_in_bytes", 8243830784L);
+            memory.put("free_in_bytes", 1135935488L);
+            memory.put("used_in_bytes", 7107895296L);
+            memory.put("free_percent", 14);
+            memory.put("used_percent", 86);
+        }
+        return nodesInfo;
+    }
+
+    static String getNodeId(int node)
+    {
+        return String.format("node-id-%018d", node);
+    }
+
+    static String getNodeName(int node)
+    {
+        return "node-" + node;
+    }
+
+    /**
+     * Gets the response of {@code /_stats/docs} for a cluster with the given number of indices.
+     */
+    static JsonNode indexStats(int indexCount)
+    {
+        ObjectNode result = NODES.objectNode();
+        ObjectNode indices = result.putObject("indices");
+        for (int i = 0; i < indexCount; i++)
+        {
+            ObjectNode index = indices.putObject(getIndexName(i));
+            for (String type : new String[] {"primaries", "total"})
+            {
+                ObjectNode docs = index.putObject(type).putObject("docs");
+                docs.put("count", 1000L * i);
+                docs.put("deleted", i);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the response of {@code /_mappings} for a cluster with the given number of indices.
+     */
+    static JsonNode mappings(int indexCount)
+    {
+        ObjectNode result = NODES.objectNode();
+        for (int i = 0; i < indexCount; i++)
+        {
+            ObjectNode type = result.putObject(getIndexName(i)).putObject("mappings").putObject("doc");
+            type.put("dynamic", "strict");
+            ObjectNode properties = type.putObject("properties");
+            for (int field = 0; field < FIELDS_PER_INDEX; field++)
+            {
+                ObjectNode property = properties.putObject("field" + field);
+                property.put("type", field % 2 == 0 ? "keyword" : "long");
+                property.put("index", field % 3 != 0);
+            }
+        }
+        return result;
+    }
+
+    static String getIndexName(int index)
+    {
+        return "index-" + index;
+    }
+
+    /**
+     * Encodes the given payload using the given codec.
+     */
+    static byte[] encode(Codec codec, JsonNode payload)
+    {
+        try
+        {
+            return codec.getMapper().writeValueAsBytes(payload);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+}
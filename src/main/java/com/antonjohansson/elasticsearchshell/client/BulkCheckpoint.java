@@ -0,0 +1,148 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.apache.commons.lang3.math.NumberUtils.toLong;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Properties;
+
+/**
+ * The progress of a bulk load, which is the offset in the file up to which every action has been acknowledged by the
+ * cluster, so that an interrupted load can be resumed from there.
+ * <p>
+ * The checkpoint is written to a temporary file that is forced to the disk and then moved over the previous
+ * checkpoint, so that a crash leaves either the previous or the new checkpoint behind, never a partial one. Along
+ * with the offset, the checkpoint holds the file, its size and the index, so that it isn't used to resume another
+ * load, and the length of the dead-letter file at the offset, so that a resumed load can discard the actions that
+ * failed after it.
+ */
+final class BulkCheckpoint
+{
+    private final Path path;
+    private final Path file;
+    private final long size;
+    private final String indexName;
+    private long written = -1;
+    private long writtenDeadLetters = -1;
+
+    /**
+     * Creates a checkpoint.
+     *
+     * @param path The path of the checkpoint.
+     * @param file The file that is loaded.
+     * @param indexName The name of the index that the file is loaded into.
+     */
+    BulkCheckpoint(Path path, Path file, String indexName) throws IOException
+    {
+        this.path = path;
+        this.file = file.toAbsolutePath().normalize();
+        this.size = Files.size(file);
+        this.indexName = indexName;
+    }
+
+    /**
+     * Reads the offset that a previous load reached.
+     *
+     * @return Returns the offset to resume from.
+     */
+    long read() throws IOException
+    {
+        if (!Files.exists(path))
+        {
+            throw new IOException("No checkpoint was found for '" + file + "'");
+        }
+
+        Properties properties = new Properties();
+        try (InputStream input = Files.newInputStream(path))
+        {
+            properties.load(input);
+        }
+        if (!file.toString().equals(properties.getProperty("file")) || !indexName.equals(properties.getProperty("index")))
+        {
+            throw new IOException("The checkpoint '" + path + "' belongs to another load");
+        }
+        if (size != toLong(properties.getProperty("size"), -1))
+        {
+            throw new IOException("'" + file + "' has changed since the checkpoint was written");
+        }
+        written = toLong(properties.getProperty("offset"));
+        writtenDeadLetters = toLong(properties.getProperty("deadLetters"));
+        return written;
+    }
+
+    /**
+     * Gets the length of the dead-letter file that was {@link #read() read} along with the offset.
+     */
+    long getDeadLetters()
+    {
+        return Math.max(writtenDeadLetters, 0);
+    }
+
+    /**
+     * Writes the given offset and length of the dead-letter file, unless they have already been written.
+     */
+    void write(long offset, long deadLetters) throws IOException
+    {
+        if (offset == written && deadLetters == writtenDeadLetters)
+        {
+            return;
+        }
+
+        Properties properties = new Properties();
+        properties.setProperty("file", file.toString());
+        properties.setProperty("size", String.valueOf(size));
+        properties.setProperty("index", indexName);
+        properties.setProperty("offset", String.valueOf(offset));
+        properties.setProperty("deadLetters", String.valueOf(deadLetters));
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        properties.store(output, "");
+
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        Path temporary = path.resolveSibling(path.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temporary, CREATE, WRITE, TRUNCATE_EXISTING))
+        {
+            ByteBuffer content = ByteBuffer.wrap(output.toByteArray());
+            while (content.hasRemaining())
+            {
+                channel.write(content);
+            }
+            channel.force(true);
+        }
+        Files.move(temporary, path, ATOMIC_MOVE, REPLACE_EXISTING);
+        written = offset;
+        writtenDeadLetters = deadLetters;
+    }
+
+    /**
+     * Deletes the checkpoint, once the whole file has been loaded.
+     */
+    void delete() throws IOException
+    {
+        Files.deleteIfExists(path);
+    }
+}
@@ -0,0 +1,111 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Decides the size of the batches of a bulk load, and how many of them are sent concurrently.
+ * <p>
+ * When the load is adaptive, both are increased additively while the cluster responds within the target latency, and
+ * are halved as soon as it responds slower or rejects actions (AIMD). Responses to requests that were sent before the
+ * last decrease are not acted on, since they reflect the load before it, so that a single overload doesn't shrink the
+ * load more than once.
+ */
+final class BulkController
+{
+    private static final int INITIAL_FRACTION = 10;
+
+    private final boolean adaptive;
+    private final int maximumBatchSize;
+    private final int maximumConcurrency;
+    private final int step;
+    private final long targetLatency;
+    private int batchSize;
+    private int concurrency;
+    private int generation;
+    private int successes;
+
+    BulkController(BulkOptions options)
+    {
+        this.adaptive = options.isAdaptive();
+        this.maximumBatchSize = options.getBatchSize();
+        this.maximumConcurrency = options.getWorkers();
+        this.step = Math.max(maximumBatchSize / INITIAL_FRACTION, 1);
+        this.targetLatency = TimeUnit.MILLISECONDS.toNanos(options.getTargetLatency());
+        this.batchSize = adaptive ? step : maximumBatchSize;
+        this.concurrency = adaptive ? 1 : maximumConcurrency;
+    }
+
+    /**
+     * Gets the maximum number of actions of the next batch.
+     */
+    synchronized int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Gets the number of batches that can currently be sent concurrently.
+     */
+    synchronized int getConcurrency()
+    {
+        return concurrency;
+    }
+
+    /**
+     * Gets the number of times that the load has been decreased, which is given back along with the outcome of the
+     * requests that are sent now.
+     */
+    synchronized int getGeneration()
+    {
+        return generation;
+    }
+
+    /**
+     * Adjusts the load to the outcome of a bulk request.
+     *
+     * @param sentGeneration The {@link #getGeneration() generation} when the request was sent.
+     * @param latency The number of nanoseconds that the request took.
+     * @param rejected Whether the cluster rejected any of the actions because it was overloaded.
+     */
+    synchronized void onResponse(int sentGeneration, long latency, boolean rejected)
+    {
+        if (!adaptive)
+        {
+            return;
+        }
+
+        if (rejected || latency > targetLatency)
+        {
+            if (sentGeneration == generation)
+            {
+                batchSize = Math.max(batchSize / 2, step);
+                concurrency = Math.max(concurrency / 2, 1);
+                generation++;
+                successes = 0;
+            }
+            return;
+        }
+
+        batchSize = Math.min(batchSize + step, maximumBatchSize);
+        if (++successes >= concurrency)
+        {
+            concurrency = Math.min(concurrency + 1, maximumConcurrency);
+            successes = 0;
+        }
+    }
+}
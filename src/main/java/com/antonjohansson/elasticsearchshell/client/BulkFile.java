@@ -0,0 +1,368 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Reads a file of newline-delimited JSON in the format of the bulk API, where each action is followed by its document,
+ * except for deletions.
+ * <p>
+ * The file is memory-mapped, one window at a time, and split into batches of whole actions by scanning its bytes for
+ * newlines. The batches are slices of the mapped file that are sent as they are, so the actions and their documents
+ * are neither decoded nor copied onto the heap. Blank lines are sent along with the actions around them.
+ * <p>
+ * The position of each action within its batch is kept, so that single actions can be sent again or set aside.
+ */
+final class BulkFile implements Closeable
+{
+    private static final long DEFAULT_WINDOW_SIZE = 256 * 1024 * 1024;
+    private static final int INITIAL_ACTIONS = 1024;
+    private static final byte NEWLINE = '\n';
+    private static final byte[] DELETE = {'"', 'd', 'e', 'l', 'e', 't', 'e', '"'};
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private ByteBuffer window;
+    private long windowStart;
+    private long windowEnd;
+    private long offset;
+
+    private BulkFile(FileChannel channel, long windowSize) throws IOException
+    {
+        this.channel = channel;
+        this.size = channel.size();
+        this.windowSize = windowSize;
+    }
+
+    static BulkFile open(Path path) throws IOException
+    {
+        return open(path, DEFAULT_WINDOW_SIZE);
+    }
+
+    /**
+     * Opens the given file, mapping windows of at least the given size, which is at most 2 GB.
+     */
+    static BulkFile open(Path path, long windowSize) throws IOException
+    {
+        return new BulkFile(FileChannel.open(path, StandardOpenOption.READ), windowSize);
+    }
+
+    /**
+     * Moves to the given offset of the file, where the next batch starts, such as the end of a batch that was read
+     * earlier.
+     */
+    void seek(long offset) throws IOException
+    {
+        if (offset < 0 || offset > size)
+        {
+            throw new IOException("The offset " + offset + " is outside of the file");
+        }
+        this.offset = offset;
+    }
+
+    /**
+     * Gets the size of the file.
+     */
+    long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * Reads the next batch of actions.
+     *
+     * @param maximumActions The maximum number of actions of the batch.
+     * @param maximumBytes The number of bytes after which the batch is ended, after the action that reaches it.
+     * @return Returns the next batch, or {@code null} if the end of the file has been reached.
+     */
+    Batch next(int maximumActions, int maximumBytes) throws IOException
+    {
+        long start = offset;
+        long position = start;
+        int actions = 0;
+        int[] starts = new int[Math.min(maximumActions, INITIAL_ACTIONS) + 1];
+        while (actions < maximumActions && position - start < maximumBytes && position < size)
+        {
+            long actionStart = position;
+            position = lineEnd(start, actionStart);
+            if (isBlank(actionStart, position))
+            {
+                continue;
+            }
+            if (!isDelete(actionStart, position))
+            {
+                position = documentEnd(start, position);
+            }
+            if (actions + 1 >= starts.length)
+            {
+                starts = Arrays.copyOf(starts, 2 * starts.length);
+            }
+            starts[actions++] = (int) (actionStart - start);
+        }
+
+        offset = position;
+        if (actions == 0)
+        {
+            return null;
+        }
+        ByteBuffer body = slice(start, position);
+        starts[actions] = body.remaining();
+        return new Batch(body, Arrays.copyOf(starts, actions + 1), start, position);
+    }
+
+    /**
+     * Gets the end of the first line after the given action that is not blank, which is the document of the action.
+     */
+    private long documentEnd(long start, long actionEnd) throws IOException
+    {
+        long position = actionEnd;
+        while (position < size)
+        {
+            long lineStart = position;
+            position = lineEnd(start, lineStart);
+            if (!isBlank(lineStart, position))
+            {
+                return position;
+            }
+        }
+        throw new IOException("The last action of the file has no document");
+    }
+
+    /**
+     * Gets the position right after the newline that ends the line at the given position, or the end of the file.
+     * The window is moved forward when needed, keeping the given start of the batch within it.
+     */
+    private long lineEnd(long start, long position) throws IOException
+    {
+        for (long i = position;; i++)
+        {
+            if (i >= windowEnd)
+            {
+                if (i >= size)
+                {
+                    return size;
+                }
+                map(start, i);
+            }
+            if (get(i) == NEWLINE)
+            {
+                return i + 1;
+            }
+        }
+    }
+
+    /**
+     * Maps a window of the file from the given start to well beyond the given position.
+     */
+    private void map(long start, long position) throws IOException
+    {
+        long length = Math.min(Math.max(windowSize, 2 * (position - start + 1)), size - start);
+        if (length > Integer.MAX_VALUE)
+        {
+            throw new IOException("The action at byte " + start + " is too large to be sent");
+        }
+        window = channel.map(MapMode.READ_ONLY, start, length);
+        windowStart = start;
+        windowEnd = start + length;
+    }
+
+    private byte get(long position)
+    {
+        return window.get((int) (position - windowStart));
+    }
+
+    private boolean isBlank(long from, long to)
+    {
+        for (long i = from; i < to; i++)
+        {
+            if (!isWhitespace(get(i)))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isWhitespace(byte value)
+    {
+        return value == ' ' || value == '\t' || value == '\r' || value == '\n';
+    }
+
+    /**
+     * Checks whether the action line between the given positions is a deletion, which has no document, by looking at
+     * the name of its first field.
+     */
+    private boolean isDelete(long from, long to)
+    {
+        long i = from;
+        while (i < to && isWhitespace(get(i)))
+        {
+            i++;
+        }
+        if (i >= to || get(i) != '{')
+        {
+            return false;
+        }
+        i++;
+        while (i < to && isWhitespace(get(i)))
+        {
+            i++;
+        }
+        if (to - i < DELETE.length)
+        {
+            return false;
+        }
+        for (int j = 0; j < DELETE.length; j++)
+        {
+            if (get(i + j) != DELETE[j])
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Gets the bytes between the given positions of the window, without copying them. The bulk API requires the last
+     * line to end with a newline, so the last batch is copied with one if the file doesn't end with a newline.
+     */
+    private ByteBuffer slice(long from, long to)
+    {
+        ByteBuffer slice = window.duplicate();
+        slice.limit((int) (to - windowStart));
+        slice.position((int) (from - windowStart));
+        if (get(to - 1) == NEWLINE)
+        {
+            return slice.slice();
+        }
+
+        ByteBuffer terminated = ByteBuffer.allocate(slice.remaining() + 1);
+        terminated.put(slice).put(NEWLINE).flip();
+        return terminated;
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+
+    /**
+     * A batch of whole actions, ready to be sent as the body of a bulk request.
+     */
+    static final class Batch
+    {
+        private final ByteBuffer body;
+        private final int[] starts;
+        private final long startOffset;
+        private final long endOffset;
+
+        /**
+         * Creates a batch.
+         *
+         * @param body The body of the batch.
+         * @param starts The position in the body where each action starts, followed by the end of the body.
+         * @param startOffset The offset in the file where the batch starts, which is where the previous one ended.
+         * @param endOffset The offset in the file right after the last action.
+         */
+        Batch(ByteBuffer body, int[] starts, long startOffset, long endOffset)
+        {
+            this.body = body;
+            this.starts = starts;
+            this.startOffset = startOffset;
+            this.endOffset = endOffset;
+        }
+
+        /**
+         * Gets the body of this batch. The body is shared, so it must be {@link ByteBuffer#duplicate() duplicated}
+         * before it is read.
+         */
+        ByteBuffer getBody()
+        {
+            return body;
+        }
+
+        int getLength()
+        {
+            return body.remaining();
+        }
+
+        int getActions()
+        {
+            return starts.length - 1;
+        }
+
+        /**
+         * Gets the action with the given index, along with its document, without copying it.
+         */
+        ByteBuffer getAction(int index)
+        {
+            ByteBuffer action = body.duplicate();
+            action.limit(starts[index + 1]);
+            action.position(starts[index]);
+            return action.slice();
+        }
+
+        /**
+         * Copies the actions with the given indices into a new batch, so that they can be sent again.
+         */
+        Batch select(List<Integer> indices)
+        {
+            int length = 0;
+            for (int index : indices)
+            {
+                length += starts[index + 1] - starts[index];
+            }
+
+            ByteBuffer selected = ByteBuffer.allocate(length);
+            int[] selectedStarts = new int[indices.size() + 1];
+            for (int i = 0; i < indices.size(); i++)
+            {
+                selectedStarts[i] = selected.position();
+                selected.put(getAction(indices.get(i)));
+            }
+            selectedStarts[indices.size()] = length;
+            selected.flip();
+            return new Batch(selected, selectedStarts, startOffset, endOffset);
+        }
+
+        /**
+         * Gets the offset in the file where this batch starts, which is where the previous batch ended.
+         */
+        long getStartOffset()
+        {
+            return startOffset;
+        }
+
+        /**
+         * Gets the offset in the file right after the last action of this batch.
+         */
+        long getEndOffset()
+        {
+            return endOffset;
+        }
+    }
+}
@@ -0,0 +1,496 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import com.antonjohansson.elasticsearchshell.client.BulkFile.Batch;
+import com.antonjohansson.elasticsearchshell.client.BulkResponse.Item;
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+
+/**
+ * Loads a file into an index through the bulk API.
+ * <p>
+ * The file is read in batches that are sent by a pool of workers. Reading waits while as many batches are in flight
+ * as the {@link BulkController controller} allows, so that the file is never read further ahead than it can be sent,
+ * however large it is. Bulk requests are sent outside of the deadline of the command, since a load can take hours,
+ * but the load stops when the command is cancelled.
+ * <p>
+ * Actions that the cluster rejects because it is overloaded are sent again on their own after a backoff, while the
+ * actions of the same batch that were executed are not sent again. Actions that fail for any other reason are written
+ * to the dead-letter file, if there is one. A worker that fails in any other way stops the load.
+ * <p>
+ * Since batches are acknowledged out of order, the checkpoint is the end of the last batch that every batch before
+ * it has also been acknowledged up to. It is written when the progress is reported and when the load stops. The
+ * failed actions of a batch are only written to the dead-letter file once the checkpoint has moved past the batch,
+ * so that the file holds exactly the failures before the checkpoint, and a resumed load can discard the rest.
+ */
+final class BulkLoader
+{
+    private static final long REPORT_INTERVAL = TimeUnit.SECONDS.toMillis(1);
+    private static final int MAXIMUM_REJECTIONS = 10;
+
+    private final Client client;
+    private final String indexName;
+    private final BulkOptions options;
+    private final BulkController controller;
+    private final DeadLetterFile deadLetters;
+    private final AtomicReference<Throwable> failure = new AtomicReference<>();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder bytes = new LongAdder();
+    private final TreeMap<Long, Long> acknowledgedBatches = new TreeMap<>();
+    private final Map<Long, List<byte[]>> pendingDeadLetters = new HashMap<>();
+    private final List<byte[]> deadLettersToWrite = new ArrayList<>();
+    private BulkCheckpoint checkpoint;
+    private long acknowledged;
+    private long size = -1;
+    private int inFlight;
+    private long startTime;
+    private long nextReport;
+
+    BulkLoader(Client client, String indexName, BulkOptions options)
+    {
+        this.client = client;
+        this.indexName = indexName;
+        this.options = options;
+        this.controller = new BulkController(options);
+        this.deadLetters = options.getDeadLetterFile() == null ? null : new DeadLetterFile(options.getDeadLetterFile());
+    }
+
+    /**
+     * Loads the given file, reporting the progress to the given listener about once a second.
+     *
+     * @param file The file to load.
+     * @param listener The listener of the progress.
+     * @return Returns the final statistics of the load.
+     */
+    BulkStatistics load(Path file, Consumer<BulkStatistics> listener) throws IOException
+    {
+        Optional<CommandContext> context = CommandContext.current();
+        if (options.getCheckpointFile() != null)
+        {
+            checkpoint = new BulkCheckpoint(options.getCheckpointFile(), file, indexName);
+            acknowledged = options.isResume() ? checkpoint.read() : 0;
+        }
+        if (deadLetters != null)
+        {
+            deadLetters.open(checkpoint != null && options.isResume() ? checkpoint.getDeadLetters() : 0);
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.getWorkers(), Client.getThreadFactory("elasticsearch-bulk-"));
+        startTime = System.nanoTime();
+        nextReport = System.currentTimeMillis() + REPORT_INTERVAL;
+        Throwable failed = null;
+        Runnable cancelListener = this::wakeUp;
+        context.ifPresent(c -> c.addCancelListener(cancelListener));
+        try (BulkFile input = BulkFile.open(file))
+        {
+            size = input.getSize();
+            input.seek(acknowledged);
+            long end = acknowledged;
+            for (Batch batch = next(input, context, listener); batch != null; batch = next(input, context, listener))
+            {
+                Batch sent = batch;
+                executor.execute(() -> send(sent));
+                end = batch.getEndOffset();
+            }
+
+            // The blank lines at the end of the file are not part of any batch, but are loaded once the batches are
+            acknowledge(end, size, new ArrayList<>());
+        }
+        catch (IOException | RuntimeException | Error e)
+        {
+            failed = e;
+        }
+
+        // Each step is taken even if the ones before it fail, so that the checkpoint is always written
+        failed = cleanUp(failed, () -> awaitInFlight(0, context, listener));
+        context.ifPresent(c -> c.removeCancelListener(cancelListener));
+        if (failed == null)
+        {
+            failed = failure.get();
+        }
+        if (failed == null && getAcknowledged() != size)
+        {
+            failed = new ElasticsearchException(isCancelled(context) ? "The command was cancelled" : "Not every batch was acknowledged");
+        }
+        failed = cleanUp(failed, executor::shutdown);
+        failed = cleanUp(failed, this::finishCheckpoint);
+        failed = cleanUp(failed, this::closeDeadLetters);
+        if (failed instanceof IOException)
+        {
+            throw (IOException) failed;
+        }
+        if (failed != null)
+        {
+            throw unchecked(failed);
+        }
+        return getStatistics();
+    }
+
+    /**
+     * Throws the given failure if it is an {@link Error}, or otherwise gets it as the unchecked exception that it is.
+     */
+    private static RuntimeException unchecked(Throwable failed)
+    {
+        if (failed instanceof Error)
+        {
+            throw (Error) failed;
+        }
+        return (RuntimeException) failed;
+    }
+
+    /**
+     * Takes a step of cleaning up after the load, adding any failure of it to the given earlier failure.
+     *
+     * @return Returns the first failure of the load, if any.
+     */
+    private static Throwable cleanUp(Throwable failed, CleanUpStep step)
+    {
+        try
+        {
+            step.run();
+            return failed;
+        }
+        catch (IOException | RuntimeException e)
+        {
+            if (failed == null)
+            {
+                return e;
+            }
+            failed.addSuppressed(e);
+            return failed;
+        }
+    }
+
+    /**
+     * Writes the failed actions that the checkpoint has moved past, and then deletes the checkpoint if every batch up
+     * to the end of the file was acknowledged, or writes it so that the load can be resumed.
+     */
+    private void finishCheckpoint() throws IOException
+    {
+        List<byte[]> letters = new ArrayList<>();
+        long offset = takeAcknowledged(letters);
+        if (checkpoint != null && offset == size)
+        {
+            syncDeadLetters(letters);
+            checkpoint.delete();
+        }
+        else
+        {
+            syncCheckpoint(offset, letters);
+        }
+    }
+
+    private void closeDeadLetters() throws IOException
+    {
+        if (deadLetters != null)
+        {
+            deadLetters.close();
+        }
+    }
+
+    /**
+     * Reads the next batch as soon as the controller allows another batch to be sent.
+     */
+    private Batch next(BulkFile input, Optional<CommandContext> context, Consumer<BulkStatistics> listener) throws IOException
+    {
+        awaitInFlight(controller.getConcurrency() - 1, context, listener);
+        checkFailure(context);
+        Batch batch = input.next(controller.getBatchSize(), options.getBatchBytes());
+        if (batch != null)
+        {
+            synchronized (this)
+            {
+                inFlight++;
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Waits until no more than the given number of batches are in flight, or the command is cancelled, reporting the
+     * progress whenever a report is due. The progress is only taken while holding the lock, and reported after
+     * releasing it, so that the workers don't wait for the console or the disk.
+     * <p>
+     * When the command is cancelled, the batches in flight are left to finish on their own. They are not part of the
+     * checkpoint, so a resumed load sends them again.
+     */
+    private void awaitInFlight(int maximum, Optional<CommandContext> context, Consumer<BulkStatistics> listener)
+    {
+        for (boolean done = false; !done;)
+        {
+            BulkStatistics statistics = null;
+            List<byte[]> letters = new ArrayList<>();
+            long offset = 0;
+            synchronized (this)
+            {
+                if (inFlight > maximum && !isCancelled(context))
+                {
+                    waitForBatch();
+                }
+                done = inFlight <= maximum || isCancelled(context);
+                long now = System.currentTimeMillis();
+                if (now >= nextReport)
+                {
+                    statistics = getStatistics();
+                    offset = takeAcknowledged(letters);
+                    nextReport = now + REPORT_INTERVAL;
+                }
+            }
+            if (statistics != null)
+            {
+                listener.accept(statistics);
+                writeCheckpoint(offset, letters);
+            }
+        }
+    }
+
+    /**
+     * Waits until a batch is done or a report is due.
+     */
+    private synchronized void waitForBatch()
+    {
+        try
+        {
+            wait(Math.max(nextReport - System.currentTimeMillis(), 1));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting for the bulk requests");
+        }
+    }
+
+    private synchronized void done()
+    {
+        inFlight--;
+        notifyAll();
+    }
+
+    private synchronized void wakeUp()
+    {
+        notifyAll();
+    }
+
+    private static boolean isCancelled(Optional<CommandContext> context)
+    {
+        return context.isPresent() && context.get().isCancelled();
+    }
+
+    private void writeCheckpoint(long offset, List<byte[]> letters)
+    {
+        try
+        {
+            syncCheckpoint(offset, letters);
+        }
+        catch (IOException e)
+        {
+            throw new ElasticsearchException("Could not save the progress of the load: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the checkpoint, after the given actions that failed before it have been written to the disk. If they
+     * can't be written, the previous checkpoint is kept.
+     */
+    private void syncCheckpoint(long offset, List<byte[]> letters) throws IOException
+    {
+        syncDeadLetters(letters);
+        if (checkpoint != null)
+        {
+            checkpoint.write(offset, deadLetters != null ? deadLetters.getLength() : 0);
+        }
+    }
+
+    private void syncDeadLetters(List<byte[]> letters) throws IOException
+    {
+        if (deadLetters == null)
+        {
+            return;
+        }
+        for (byte[] letter : letters)
+        {
+            deadLetters.write(letter);
+        }
+        deadLetters.sync();
+    }
+
+    private synchronized long getAcknowledged()
+    {
+        return acknowledged;
+    }
+
+    /**
+     * Takes the failed actions of the batches that the checkpoint has moved past.
+     *
+     * @param letters The list to add the failed actions to.
+     * @return Returns the checkpoint.
+     */
+    private synchronized long takeAcknowledged(List<byte[]> letters)
+    {
+        letters.addAll(deadLettersToWrite);
+        deadLettersToWrite.clear();
+        return acknowledged;
+    }
+
+    /**
+     * Marks the given batch as acknowledged, moving the checkpoint past it and past the batches after it that were
+     * acknowledged before it.
+     */
+    private synchronized void acknowledge(long start, long end, List<byte[]> letters)
+    {
+        if (start == end)
+        {
+            return;
+        }
+        acknowledgedBatches.put(start, end);
+        pendingDeadLetters.put(start, letters);
+        for (Long next = acknowledgedBatches.remove(acknowledged); next != null; next = acknowledgedBatches.remove(acknowledged))
+        {
+            deadLettersToWrite.addAll(pendingDeadLetters.remove(acknowledged));
+            acknowledged = next;
+        }
+    }
+
+    private void checkFailure(Optional<CommandContext> context)
+    {
+        if (failure.get() != null)
+        {
+            throw unchecked(failure.get());
+        }
+        if (isCancelled(context))
+        {
+            throw new ElasticsearchException("The command was cancelled");
+        }
+    }
+
+    /**
+     * Sends the given batch, sending the actions that the cluster rejects again after a backoff.
+     */
+    private void send(Batch batch)
+    {
+        try
+        {
+            List<byte[]> letters = new ArrayList<>();
+            Batch remaining = batch;
+            for (int rejections = 0; remaining != null; rejections++)
+            {
+                if (rejections > 0)
+                {
+                    Client.backoff(rejections - 1);
+                }
+                int generation = controller.getGeneration();
+                long start = System.nanoTime();
+                BulkResponse response = client.bulk(indexName, remaining.getBody());
+                controller.onResponse(generation, System.nanoTime() - start, response.isOverloaded());
+                if (response.isRejected())
+                {
+                    if (rejections >= MAXIMUM_REJECTIONS)
+                    {
+                        throw new ElasticsearchException("The cluster is overloaded, try again later");
+                    }
+                    continue;
+                }
+                remaining = handle(remaining, response, rejections >= MAXIMUM_REJECTIONS, letters);
+            }
+            bytes.add(batch.getLength());
+            acknowledge(batch.getStartOffset(), batch.getEndOffset(), letters);
+        }
+        catch (RuntimeException | Error e)
+        {
+            failure.compareAndSet(null, e);
+        }
+        finally
+        {
+            done();
+        }
+    }
+
+    /**
+     * Counts the outcome of each action of the given batch.
+     *
+     * @param batch The batch that was sent.
+     * @param response The response to the batch.
+     * @param last Whether rejected actions have been sent too many times already, so that they have failed.
+     * @param letters The list to add the failed actions to.
+     * @return Returns the actions that should be sent again, or {@code null} if there are none.
+     */
+    private Batch handle(Batch batch, BulkResponse response, boolean last, List<byte[]> letters)
+    {
+        List<Item> items = response.getItems();
+        List<Integer> rejected = new ArrayList<>();
+        for (int i = 0; i < batch.getActions(); i++)
+        {
+            Item item = i < items.size() ? items.get(i) : null;
+            if (item == null)
+            {
+                fail(batch, i, "The action is missing from the response", letters);
+            }
+            else if (item.isSuccessful())
+            {
+                documents.increment();
+            }
+            else if (item.isRejected() && !last)
+            {
+                rejected.add(i);
+            }
+            else
+            {
+                fail(batch, i, item.getError(), letters);
+            }
+        }
+        return rejected.isEmpty() ? null : batch.select(rejected);
+    }
+
+    private void fail(Batch batch, int index, String error, List<byte[]> letters)
+    {
+        failures.increment();
+        if (deadLetters != null)
+        {
+            letters.add(DeadLetterFile.format(batch.getAction(index), error));
+        }
+    }
+
+    private BulkStatistics getStatistics()
+    {
+        return new BulkStatistics(documents.sum(), failures.sum(), bytes.sum(), System.nanoTime() - startTime, controller.getBatchSize(), controller.getConcurrency());
+    }
+
+    /**
+     * A step of cleaning up after a load.
+     */
+    @FunctionalInterface
+    private interface CleanUpStep
+    {
+        void run() throws IOException;
+    }
+}
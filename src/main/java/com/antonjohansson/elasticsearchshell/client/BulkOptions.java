@@ -0,0 +1,218 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+import org.apache.commons.lang3.builder.EqualsBuilder;
+
+/**
+ * Defines how a file is loaded into an index through the bulk API.
+ */
+public class BulkOptions
+{
+    /** The default number of bulk requests that are sent concurrently. */
+    public static final int DEFAULT_WORKERS = 2;
+
+    /** The default maximum number of actions in a single bulk request. */
+    public static final int DEFAULT_BATCH_SIZE = 1000;
+
+    /** The default maximum number of bytes in a single bulk request. */
+    public static final int DEFAULT_BATCH_BYTES = 5 * 1024 * 1024;
+
+    /** The default number of milliseconds that bulk requests should take, when the load is adaptive. */
+    public static final int DEFAULT_TARGET_LATENCY = 1000;
+
+    private int workers = DEFAULT_WORKERS;
+    private int batchSize = DEFAULT_BATCH_SIZE;
+    private int batchBytes = DEFAULT_BATCH_BYTES;
+    private boolean adaptive;
+    private int targetLatency = DEFAULT_TARGET_LATENCY;
+    private Path deadLetterFile;
+    private Path checkpointFile;
+    private boolean resume;
+
+    /**
+     * Gets the number of bulk requests that are sent concurrently, or the maximum number if the load is
+     * {@link #isAdaptive() adaptive}.
+     *
+     * @return Returns the number of workers.
+     */
+    public int getWorkers()
+    {
+        return workers;
+    }
+
+    public void setWorkers(int workers)
+    {
+        this.workers = workers;
+    }
+
+    /**
+     * Gets the maximum number of actions in a single bulk request, which is also the maximum that an
+     * {@link #isAdaptive() adaptive} load grows to.
+     *
+     * @return Returns the maximum number of actions.
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    public void setBatchSize(int batchSize)
+    {
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Gets the maximum number of bytes in a single bulk request. A batch is sent as soon as it reaches either this
+     * size or the {@link #getBatchSize() maximum number of actions}, so a single action that is larger than this is
+     * sent on its own.
+     *
+     * @return Returns the maximum number of bytes.
+     */
+    public int getBatchBytes()
+    {
+        return batchBytes;
+    }
+
+    public void setBatchBytes(int batchBytes)
+    {
+        this.batchBytes = batchBytes;
+    }
+
+    /**
+     * Gets whether the batch size and the number of concurrent requests are adapted to how fast the cluster responds,
+     * starting low and growing while the cluster keeps up.
+     *
+     * @return Returns whether the load is adaptive.
+     */
+    public boolean isAdaptive()
+    {
+        return adaptive;
+    }
+
+    public void setAdaptive(boolean adaptive)
+    {
+        this.adaptive = adaptive;
+    }
+
+    /**
+     * Gets the number of milliseconds that bulk requests should take at most, above which an
+     * {@link #isAdaptive() adaptive} load is decreased.
+     *
+     * @return Returns the target latency.
+     */
+    public int getTargetLatency()
+    {
+        return targetLatency;
+    }
+
+    public void setTargetLatency(int targetLatency)
+    {
+        this.targetLatency = targetLatency;
+    }
+
+    /**
+     * Gets the file that actions which failed permanently are written to, along with the reason that they failed.
+     * Actions that the cluster rejected because it was overloaded are sent again, and only written to this file if
+     * they keep being rejected.
+     *
+     * @return Returns the dead-letter file, or {@code null} if failed actions are only counted.
+     */
+    public Path getDeadLetterFile()
+    {
+        return deadLetterFile;
+    }
+
+    public void setDeadLetterFile(Path deadLetterFile)
+    {
+        this.deadLetterFile = deadLetterFile;
+    }
+
+    /**
+     * Gets the file that the progress of the load is written to about once a second, so that it can be
+     * {@link #isResume() resumed} if it is interrupted. The file is deleted once the whole load has succeeded.
+     *
+     * @return Returns the checkpoint file, or {@code null} if the progress is not written.
+     */
+    public Path getCheckpointFile()
+    {
+        return checkpointFile;
+    }
+
+    public void setCheckpointFile(Path checkpointFile)
+    {
+        this.checkpointFile = checkpointFile;
+    }
+
+    /**
+     * Gets whether the load resumes from the {@link #getCheckpointFile() checkpoint} of an earlier load of the same
+     * file, instead of loading the file from its start.
+     *
+     * @return Returns whether the load is resumed.
+     */
+    public boolean isResume()
+    {
+        return resume;
+    }
+
+    public void setResume(boolean resume)
+    {
+        this.resume = resume;
+    }
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(workers, batchSize, batchBytes, adaptive, targetLatency, deadLetterFile, checkpointFile, resume);
+    }
+
+    @Override
+    public boolean equals(Object obj)
+    {
+        if (obj == null || obj.getClass() != getClass())
+        {
+            return false;
+        }
+        if (obj == this)
+        {
+            return true;
+        }
+
+        BulkOptions that = (BulkOptions) obj;
+        return new EqualsBuilder()
+                .append(this.workers, that.workers)
+                .append(this.batchSize, that.batchSize)
+                .append(this.batchBytes, that.batchBytes)
+                .append(this.adaptive, that.adaptive)
+                .append(this.targetLatency, that.targetLatency)
+                .append(this.deadLetterFile, that.deadLetterFile)
+                .append(this.checkpointFile, that.checkpointFile)
+                .append(this.resume, that.resume)
+                .isEquals();
+    }
+
+    @Override
+    public String toString()
+    {
+        return reflectionToString(this, SHORT_PREFIX_STYLE);
+    }
+}
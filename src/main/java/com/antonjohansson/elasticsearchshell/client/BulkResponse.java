@@ -0,0 +1,168 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static com.fasterxml.jackson.core.JsonToken.START_ARRAY;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * The response of a bulk request, with the outcome of each of its actions, in the order that they were sent.
+ */
+final class BulkResponse
+{
+    private static final int TOO_MANY_REQUESTS = 429;
+
+    private final List<Item> items;
+    private final boolean rejected;
+
+    private BulkResponse(List<Item> items, boolean rejected)
+    {
+        this.items = items;
+        this.rejected = rejected;
+    }
+
+    /**
+     * Gets the response of a bulk request that the cluster rejected as a whole because it was overloaded, without
+     * executing any of its actions.
+     */
+    static BulkResponse rejected()
+    {
+        return new BulkResponse(new ArrayList<>(), true);
+    }
+
+    List<Item> getItems()
+    {
+        return items;
+    }
+
+    /**
+     * Gets whether the request was rejected as a whole, in which case none of its actions were executed.
+     */
+    boolean isRejected()
+    {
+        return rejected;
+    }
+
+    /**
+     * Gets whether the cluster was overloaded, either rejecting the whole request or some of its actions.
+     */
+    boolean isOverloaded()
+    {
+        if (rejected)
+        {
+            return true;
+        }
+        for (Item item : items)
+        {
+            if (item.isRejected())
+            {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Reads the response, only binding the status and the error of each item.
+     */
+    static BulkResponse read(JsonParser parser) throws IOException
+    {
+        List<Item> items = new ArrayList<>();
+        if (JsonStreamReader.moveTo(parser, "items") && parser.getCurrentToken() == START_ARRAY)
+        {
+            while (parser.nextToken() == START_OBJECT)
+            {
+                JsonStreamReader.forEachField(parser, (action, itemParser) ->
+                {
+                    items.add(readItem(itemParser));
+                    return true;
+                });
+            }
+        }
+        return new BulkResponse(items, false);
+    }
+
+    private static Item readItem(JsonParser parser) throws IOException
+    {
+        Item item = new Item();
+        JsonStreamReader.forEachField(parser, (field, fieldParser) ->
+        {
+            if ("status".equals(field))
+            {
+                item.status = fieldParser.getIntValue();
+            }
+            else if ("error".equals(field))
+            {
+                JsonNode error = fieldParser.readValueAsTree();
+                item.error = error.isTextual() ? error.asText() : error.path("reason").asText(error.toString());
+            }
+            else
+            {
+                fieldParser.skipChildren();
+            }
+            return true;
+        });
+        return item;
+    }
+
+    /**
+     * The outcome of a single action.
+     */
+    static final class Item
+    {
+        private int status;
+        private String error;
+
+        int getStatus()
+        {
+            return status;
+        }
+
+        /**
+         * Gets the reason that the action failed.
+         *
+         * @return Returns the reason, or {@code null} if the action succeeded.
+         */
+        String getError()
+        {
+            return error;
+        }
+
+        /**
+         * Checks whether the action succeeded. Deletions of missing documents succeed, with {@code 404 Not Found}.
+         */
+        boolean isSuccessful()
+        {
+            return error == null;
+        }
+
+        /**
+         * Checks whether the action was rejected because the cluster was overloaded, in which case it can be sent
+         * again.
+         */
+        boolean isRejected()
+        {
+            return status == TOO_MANY_REQUESTS;
+        }
+    }
+}
@@ -0,0 +1,127 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
+import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Holds the progress of a bulk load, at some point in time.
+ */
+public final class BulkStatistics
+{
+    private static final double BYTES_PER_MEGABYTE = 1024 * 1024;
+
+    private final long documents;
+    private final long failures;
+    private final long bytes;
+    private final long elapsedNanos;
+    private final int batchSize;
+    private final int workers;
+
+    public BulkStatistics(long documents, long failures, long bytes, long elapsedNanos, int batchSize, int workers)
+    {
+        this.documents = documents;
+        this.failures = failures;
+        this.bytes = bytes;
+        this.elapsedNanos = elapsedNanos;
+        this.batchSize = batchSize;
+        this.workers = workers;
+    }
+
+    /**
+     * Gets the number of actions that the cluster has executed successfully.
+     *
+     * @return Returns the number of documents.
+     */
+    public long getDocuments()
+    {
+        return documents;
+    }
+
+    /**
+     * Gets the number of actions that the cluster has rejected or failed to execute.
+     *
+     * @return Returns the number of failures.
+     */
+    public long getFailures()
+    {
+        return failures;
+    }
+
+    /**
+     * Gets the number of bytes of the bulk requests that the cluster has responded to.
+     *
+     * @return Returns the number of bytes.
+     */
+    public long getBytes()
+    {
+        return bytes;
+    }
+
+    public double getMegabytes()
+    {
+        return bytes / BYTES_PER_MEGABYTE;
+    }
+
+    public long getElapsedMillis()
+    {
+        return TimeUnit.NANOSECONDS.toMillis(elapsedNanos);
+    }
+
+    public double getDocumentsPerSecond()
+    {
+        return perSecond(documents);
+    }
+
+    public double getMegabytesPerSecond()
+    {
+        return perSecond(bytes) / BYTES_PER_MEGABYTE;
+    }
+
+    /**
+     * Gets the maximum number of actions of the batches that are currently read.
+     *
+     * @return Returns the batch size.
+     */
+    public int getBatchSize()
+    {
+        return batchSize;
+    }
+
+    /**
+     * Gets the number of bulk requests that are currently allowed to be sent concurrently.
+     *
+     * @return Returns the number of workers.
+     */
+    public int getWorkers()
+    {
+        return workers;
+    }
+
+    private double perSecond(double value)
+    {
+        return elapsedNanos > 0 ? value * TimeUnit.SECONDS.toNanos(1) / elapsedNanos : 0;
+    }
+
+    @Override
+    public String toString()
+    {
+        return reflectionToString(this, SHORT_PREFIX_STYLE);
+    }
+}
@@ -15,22 +15,48 @@
  */
 package com.antonjohansson.elasticsearchshell.client;
 
-import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
-import static java.util.Arrays.asList;
-import static javax.ws.rs.core.MediaType.APPLICATION_JSON_TYPE;
+import static org.apache.commons.lang3.StringUtils.containsIgnoreCase;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
 
-import javax.ws.rs.WebApplicationException;
-import javax.ws.rs.core.GenericType;
-import javax.ws.rs.core.Response;
-import javax.ws.rs.core.Response.Status;
-
-import org.apache.cxf.jaxrs.client.WebClient;
-
+import com.antonjohansson.elasticsearchshell.client.HostPool.Host;
+import com.antonjohansson.elasticsearchshell.client.HostPool.Strategy;
+import com.antonjohansson.elasticsearchshell.client.JsonStreamReader.ValueReader;
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
 import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.domain.Acknowledgement;
@@ -39,34 +65,101 @@ import com.antonjohansson.elasticsearchshell.domain.ClusterInfo;
 import com.antonjohansson.elasticsearchshell.domain.Index;
 import com.antonjohansson.elasticsearchshell.domain.IndexMappings;
 import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsContainer;
-import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsResult;
 import com.antonjohansson.elasticsearchshell.domain.node.Node;
-import com.antonjohansson.elasticsearchshell.domain.node.NodesInfo;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.jaxrs.json.JacksonJsonProvider;
-import com.google.common.base.Function;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
 
 /**
  * Defines a client that can communicate with an Elasticsearch server.
  */
 public class Client
 {
-    private static final ObjectMapper MAPPER = getMapper();
+    private static final JavaType MAPPINGS_TYPE = Codec.JSON.getMapper().getTypeFactory().constructMapType(Map.class, String.class, IndexMappings.class);
+    private static final int OK = 200;
     private static final int UNAUTHORIZED = 401;
+    private static final int NOT_FOUND = 404;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVICE_UNAVAILABLE = 503;
+    private static final int MAXIMUM_RETRIES = 3;
+    private static final long MINIMUM_BACKOFF = 100;
+    private static final long MAXIMUM_BACKOFF = TimeUnit.SECONDS.toMillis(2);
+    private static final int ASYNC_THREADS = 4;
+    private static final int ASYNC_QUEUE_SIZE = 64;
+    private static final int BACKGROUND_THREADS = 2;
+    private static final int BACKGROUND_QUEUE_SIZE = 16;
+    private static final ExecutorService EXECUTOR = getExecutor();
+    private static final ExecutorService BACKGROUND = getBackgroundExecutor();
+    private static final ExecutorService REQUESTS = Executors.newCachedThreadPool(getThreadFactory("elasticsearch-request-"));
+    private static final ScheduledExecutorService SNIFFER = Executors.newSingleThreadScheduledExecutor(getThreadFactory("elasticsearch-sniffer-"));
+    private static final long SNIFF_INTERVAL = TimeUnit.MINUTES.toMillis(1);
+    private static final String HTTP_ADDRESS_FILTER = "nodes.*.http.publish_address";
+    private static final String NODE_NAME_FILTER = "nodes.*.name";
+    private static final String INDEX_NAMES_FILTER = "metadata.indices.*.state";
+    private static final String TASKS_FILTER = "nodes.*.tasks.*.cancellable,nodes.*.tasks.*.headers";
+    private static final String OPAQUE_ID = "X-Opaque-Id";
+    private static final String ACCEPT = "Accept";
+    private static final String CONTENT_TYPE = "Content-Type";
+    private static final String AUTHORIZATION = "Authorization";
+    private static final String NDJSON = "application/x-ndjson";
+    private static final String NODE_STATS_FILTER = "nodes.*.name,nodes.*.os.cpu.percent,nodes.*.os.mem";
+    private static final String ALL_MAPPINGS_PATH = "/_mappings";
+    private static final String CLUSTER_HEALTH_PATH = "/_cluster/health";
     private final Connection connection;
     private final PasswordEncrypter passwordEncrypter;
+    private final Map<String, String> nodeIds = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Object>> sharedRequests = new ConcurrentHashMap<>();
+    private final IndexCatalog indexCatalog;
+    private final ResponseCache responseCache;
+    private final HostPool hostPool;
+    private final Codec codec;
+    private final Transport transport;
+    private String authorization;
+    private ScheduledFuture<?> sniffing;
 
     Client(Connection connection, PasswordEncrypter passwordEncrypter)
     {
         this.connection = connection;
         this.passwordEncrypter = passwordEncrypter;
+        this.indexCatalog = new IndexCatalog(this::getIndexNames, BACKGROUND, connection.getIndexNamesCacheTime(), System::currentTimeMillis);
+        this.responseCache = new ResponseCache(connection.getCacheSize(), System::currentTimeMillis);
+        this.hostPool = new HostPool(connection.getURLs(), Strategy.of(connection.getLoadBalancing()), System::currentTimeMillis);
+        this.codec = Codec.of(connection.getFormat());
+        this.transport = Transport.of(connection);
+
+        if (connection.isSniff())
+        {
+            sniffing = SNIFFER.scheduleWithFixedDelay(this::sniff, 0, SNIFF_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    static ThreadFactory getThreadFactory(String prefix)
+    {
+        AtomicInteger threadNumber = new AtomicInteger();
+        return runnable ->
+        {
+            Thread thread = new Thread(runnable, prefix + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+
+    private static ExecutorService getExecutor()
+    {
+        // When the queue is full, requests are executed by the calling thread, which throttles the caller
+        ThreadFactory threadFactory = getThreadFactory("elasticsearch-client-");
+        return new ThreadPoolExecutor(ASYNC_THREADS, ASYNC_THREADS, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(ASYNC_QUEUE_SIZE), threadFactory, new ThreadPoolExecutor.CallerRunsPolicy());
     }
 
-    private static ObjectMapper getMapper()
+    private static ExecutorService getBackgroundExecutor()
     {
-        ObjectMapper mapper = new ObjectMapper();
-        mapper.configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
-        return mapper;
+        // Background work is rejected rather than run by the caller when the queue is full, since the caller is the
+        // thread that the work was moved off of, such as the one completing a command
+        ThreadFactory threadFactory = getThreadFactory("elasticsearch-background-");
+        return new ThreadPoolExecutor(BACKGROUND_THREADS, BACKGROUND_THREADS, 0, TimeUnit.MILLISECONDS, new ArrayBlockingQueue<>(BACKGROUND_QUEUE_SIZE), threadFactory);
     }
 
     Connection getConnection()
@@ -74,24 +167,73 @@ public class Client
         return connection;
     }
 
-    private WebClient client()
+    HostPool getHostPool()
     {
-        String baseURL = connection.getURL();
-        JacksonJsonProvider provider = new JacksonJsonProvider(MAPPER);
-
-        WebClient client = WebClient.create(baseURL, asList(provider))
-                .accept(APPLICATION_JSON_TYPE)
-                .type(APPLICATION_JSON_TYPE);
+        return hostPool;
+    }
 
-        if (!isBlank(connection.getUsername()))
+    /**
+     * Gets the value of the authorization header, decrypting the password of the connection on first use.
+     */
+    private synchronized String getAuthorization()
+    {
+        if (authorization == null && !isBlank(connection.getUsername()))
         {
             String decryptedPassword = passwordEncrypter.decrypt(connection.getUsername(), connection.getPassword());
             String authorizationString = connection.getUsername() + ":" + decryptedPassword;
-            String authorization = "Basic " + Base64.getEncoder().encodeToString(authorizationString.getBytes());
-            client.header("Authorization", authorization);
+            authorization = "Basic " + Base64.getEncoder().encodeToString(authorizationString.getBytes());
         }
+        return authorization;
+    }
+
+    /**
+     * Closes this client, releasing the connections held by it.
+     */
+    synchronized void close()
+    {
+        if (sniffing != null)
+        {
+            sniffing.cancel(false);
+        }
+        transport.close();
+    }
 
-        return client;
+    /**
+     * Gets the cache of the responses of read-only requests.
+     *
+     * @return Returns the response cache.
+     */
+    public ResponseCache getResponseCache()
+    {
+        return responseCache;
+    }
+
+    /**
+     * Loads the metadata that commands and completions commonly need in the background, so that they don't have to
+     * wait for the cluster when they are first used: the names of the indices and the identifiers of the nodes.
+     * Commands that need the metadata while it is still loading share the requests that are already in flight.
+     */
+    public void prefetch()
+    {
+        indexCatalog.prefetch();
+        try
+        {
+            BACKGROUND.execute(() ->
+            {
+                try
+                {
+                    loadNodeIds();
+                }
+                catch (ElasticsearchException e)
+                {
+                    // Nodes are looked up by name until their identifiers are known
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // Too much is already loading in the background, so the identifiers are loaded on first use instead
+        }
     }
 
     /**
@@ -101,7 +243,17 @@ public class Client
      */
     public ClusterInfo getClusterInfo()
     {
-        return execute(client -> client.get(ClusterInfo.class));
+        return responseCache.get("cluster-info", "/", connection.getClusterInfoCacheTime(), () -> executeShared(TransportRequest.get("/"), read(ClusterInfo.class)));
+    }
+
+    /**
+     * Asynchronously gets information about the Elasticsearch cluster.
+     *
+     * @return Returns a future that completes with the information about the cluster.
+     */
+    public CompletableFuture<ClusterInfo> getClusterInfoAsync()
+    {
+        return async(this::getClusterInfo);
     }
 
     /**
@@ -111,7 +263,66 @@ public class Client
      */
     public ClusterHealth getClusterHealth()
     {
-        return execute(client -> client.path("/_cluster/health").get(ClusterHealth.class));
+        return responseCache.get("cluster-health", CLUSTER_HEALTH_PATH, connection.getClusterHealthCacheTime(), () -> executeShared(TransportRequest.get(CLUSTER_HEALTH_PATH), read(ClusterHealth.class)));
+    }
+
+    /**
+     * Gets the current health of the cluster, bypassing the cache, which is refreshed with it.
+     *
+     * @return Returns the cluster health.
+     */
+    public ClusterHealth getCurrentClusterHealth()
+    {
+        responseCache.invalidate(CLUSTER_HEALTH_PATH);
+        return getClusterHealth();
+    }
+
+    /**
+     * Asynchronously gets the health of the cluster.
+     *
+     * @return Returns a future that completes with the cluster health.
+     */
+    public CompletableFuture<ClusterHealth> getClusterHealthAsync()
+    {
+        return async(this::getClusterHealth);
+    }
+
+    /**
+     * Gets the catalog of the index names of the cluster, used for quickly finding index names.
+     *
+     * @return Returns the index catalog.
+     */
+    public IndexCatalog getIndexCatalog()
+    {
+        return indexCatalog;
+    }
+
+    /**
+     * Gets the names of all indices, without fetching any information about them. The names are read from the
+     * metadata of the cluster state, filtered down to the state of each index, since listing them through the cat API
+     * makes the cluster gather the statistics of every shard first.
+     *
+     * @return Returns the index names.
+     */
+    public List<String> getIndexNames()
+    {
+        TransportRequest request = TransportRequest.get("/_cluster/state/metadata")
+                .query("filter_path", INDEX_NAMES_FILTER);
+
+        return streamShared(request, parser ->
+        {
+            List<String> names = new ArrayList<>();
+            if (JsonStreamReader.moveTo(parser, "metadata", "indices"))
+            {
+                JsonStreamReader.forEachField(parser, (name, indexParser) ->
+                {
+                    names.add(name);
+                    indexParser.skipChildren();
+                    return true;
+                });
+            }
+            return names;
+        }, null);
     }
 
     /**
@@ -121,11 +332,60 @@ public class Client
      */
     public Map<String, IndexMappings> getMappings()
     {
-        GenericType<Map<String, IndexMappings>> responseType = new GenericType<Map<String, IndexMappings>>()
+        return responseCache.get("mappings", ALL_MAPPINGS_PATH, connection.getMappingsCacheTime(), () -> executeShared(TransportRequest.get(ALL_MAPPINGS_PATH), read(MAPPINGS_TYPE)));
+    }
+
+    /**
+     * Asynchronously gets all indices and their mappings.
+     *
+     * @return Returns a future that completes with the mappings.
+     */
+    public CompletableFuture<Map<String, IndexMappings>> getMappingsAsync()
+    {
+        return async(this::getMappings);
+    }
+
+    /**
+     * Gets the mappings of a specific index, with the given name, without fetching the mappings of any other index.
+     *
+     * @param indexName The name of the index to get mappings for.
+     * @return Returns the mappings, or nothing if the index does not exist.
+     */
+    public Optional<IndexMappings> getMappings(String indexName)
+    {
+        TransportRequest request = TransportRequest.get("/{indexName}/_mapping", indexName);
+        ValueReader<Optional<IndexMappings>> reader = parser ->
         {
+            // The response is keyed by the name of the concrete index, which differs from the given name for aliases
+            AtomicReference<IndexMappings> result = new AtomicReference<>();
+            if (parser.nextToken() == JsonToken.START_OBJECT)
+            {
+                JsonStreamReader.forEachField(parser, (name, mappingsParser) ->
+                {
+                    result.set(Codec.readValue(mappingsParser, IndexMappings.class));
+                    return false;
+                });
+            }
+            return Optional.ofNullable(result.get());
         };
 
-        return execute(client -> client.path("/_mappings").get(responseType));
+        return responseCache.get("index-mappings", getMappingsPath(indexName), connection.getMappingsCacheTime(), () -> streamShared(request, reader, Optional.empty()));
+    }
+
+    private String getMappingsPath(String indexName)
+    {
+        return "/" + indexName + "/_mapping";
+    }
+
+    /**
+     * Asynchronously gets the mappings of a specific index, with the given name.
+     *
+     * @param indexName The name of the index to get mappings for.
+     * @return Returns a future that completes with the mappings, or nothing if the index does not exist.
+     */
+    public CompletableFuture<Optional<IndexMappings>> getMappingsAsync(String indexName)
+    {
+        return async(() -> getMappings(indexName));
     }
 
     /**
@@ -137,23 +397,25 @@ public class Client
      */
     public boolean createIndex(String name, Index index)
     {
-        Acknowledgement acknowledgement = execute(client ->
-        {
-            Response response = client()
-                    .path("/{indexName}", name)
-                    .put(index);
-
-            if (response.getStatus() == Status.OK.getStatusCode())
-            {
-                return response.readEntity(Acknowledgement.class);
-            }
-
-            return new Acknowledgement();
-        });
+        TransportRequest request = TransportRequest.put("/{indexName}", name).body(toJson(index));
+        Acknowledgement acknowledgement = execute(request, this::readAcknowledgement, false);
 
+        invalidate(name);
         return acknowledgement.isAcknowledged();
     }
 
+    /**
+     * Asynchronously creates a new index with the given settings.
+     *
+     * @param name The name of the index to create.
+     * @param index The definition of the index.
+     * @return Returns a future that completes with whether or not the index could be created.
+     */
+    public CompletableFuture<Boolean> createIndexAsync(String name, Index index)
+    {
+        return async(() -> createIndex(name, index));
+    }
+
     /**
      * Deletes the index with the given name.
      *
@@ -162,21 +424,62 @@ public class Client
      */
     public boolean deleteIndex(String name)
     {
-        Acknowledgement acknowledgement = execute(client ->
-        {
-            Response response = client
-                .path("/{indexName}", name)
-                .delete();
+        Acknowledgement acknowledgement = execute(TransportRequest.delete("/{indexName}", name), this::readAcknowledgement, false);
 
-            if (response.getStatus() == Status.OK.getStatusCode())
-            {
-                return response.readEntity(Acknowledgement.class);
-            }
+        invalidate(name);
+        return acknowledgement.isAcknowledged();
+    }
 
-            return new Acknowledgement();
-        });
+    /**
+     * Asynchronously deletes the index with the given name.
+     *
+     * @param name The name of the index to delete.
+     * @return Returns a future that completes with whether or not the index could be deleted.
+     */
+    public CompletableFuture<Boolean> deleteIndexAsync(String name)
+    {
+        return async(() -> deleteIndex(name));
+    }
 
-        return acknowledgement.isAcknowledged();
+    /**
+     * Loads a file of newline-delimited JSON, in the format of the bulk API, into the index with the given name.
+     * Actions that don't name an index are executed against the given one.
+     *
+     * @param indexName The name of the index to load the file into.
+     * @param file The file to load.
+     * @param options The options of the load.
+     * @param listener The listener of the progress, which is notified about once a second.
+     * @return Returns the final statistics of the load.
+     * @throws IOException Thrown if the file cannot be read.
+     */
+    public BulkStatistics bulkLoad(String indexName, Path file, BulkOptions options, Consumer<BulkStatistics> listener) throws IOException
+    {
+        try
+        {
+            return new BulkLoader(this, indexName, options).load(file, listener);
+        }
+        finally
+        {
+            invalidate(indexName);
+        }
+    }
+
+    /**
+     * Sends a batch of actions, in the format of the bulk API, to the index with the given name.
+     * <p>
+     * Bulk requests are only retried if they never reached the server, since actions without identifiers would
+     * otherwise be executed twice. Requests that the cluster rejects as overloaded are given back as
+     * {@link BulkResponse#rejected() rejected}, so that the caller can slow down before sending them again.
+     */
+    BulkResponse bulk(String indexName, ByteBuffer body)
+    {
+        TransportRequest request = TransportRequest.post("/{indexName}/_bulk", indexName)
+                .header(ACCEPT, codec.getMediaType())
+                .header(CONTENT_TYPE, NDJSON)
+                .body(body);
+
+        ResponseReader<BulkResponse> reader = streaming(BulkResponse::read, null);
+        return execute(request, response -> response.getStatus() == TOO_MANY_REQUESTS ? BulkResponse.rejected() : reader.read(response), false);
     }
 
     /**
@@ -187,37 +490,654 @@ public class Client
      */
     public Optional<IndexStatsContainer> getIndexStats(String indexName)
     {
-        IndexStatsResult result = execute(client -> client.path("/{indexName}/_stats", indexName).get(IndexStatsResult.class));
-        IndexStatsContainer stats = result.getIndices().get(indexName);
-        return Optional.ofNullable(stats);
+        TransportRequest request = TransportRequest.get("/{indexName}/_stats/docs", indexName);
+        return streamShared(request, parser ->
+        {
+            if (JsonStreamReader.moveTo(parser, "indices") && JsonStreamReader.moveToField(parser, indexName))
+            {
+                return Optional.of(Codec.readValue(parser, IndexStatsContainer.class));
+            }
+            return Optional.empty();
+        }, Optional.empty());
+    }
+
+    /**
+     * Asynchronously gets the statistics of a specific index, with the given name.
+     *
+     * @param indexName The name of the index to get statistics for.
+     * @return Returns a future that completes with the index statistics.
+     */
+    public CompletableFuture<Optional<IndexStatsContainer>> getIndexStatsAsync(String indexName)
+    {
+        return async(() -> getIndexStats(indexName));
     }
 
     /**
      * Gets information about a specific node.
+     * <p>
+     * Only the requested node and its operating system statistics are fetched from the cluster. The identifier of the
+     * node is remembered, so that subsequent lookups of the same node can target it directly.
      *
      * @param name The name of the node to get information about.
      * @return Returns the {@link Node node}.
      */
     public Node getNodeInfo(String name)
     {
-        NodesInfo info = execute(client -> client.path("/_nodes/stats").get(NodesInfo.class));
-        return info.getNodeByName(name);
+        String cachedNodeId = nodeIds.get(name);
+        if (cachedNodeId != null)
+        {
+            Optional<Node> node = findNode(cachedNodeId, name).map(Entry::getValue);
+            if (node.isPresent())
+            {
+                return node.get();
+            }
+
+            // The node has been restarted with a new identifier, or it has been renamed
+            nodeIds.remove(name, cachedNodeId);
+        }
+
+        Entry<String, Node> node = findNode(name, name).orElseThrow(() -> new ElasticsearchException("No node with name '" + name + "' was found"));
+        nodeIds.put(name, node.getKey());
+        return node.getValue();
+    }
+
+    /**
+     * Loads the identifiers of all nodes, so that nodes that are looked up by name can be targeted directly.
+     */
+    void loadNodeIds()
+    {
+        TransportRequest request = TransportRequest.get("/_nodes")
+                .query("filter_path", NODE_NAME_FILTER);
+
+        Map<String, String> ids = streamShared(request, parser ->
+        {
+            Map<String, String> idsByName = new HashMap<>();
+            if (JsonStreamReader.moveTo(parser, "nodes"))
+            {
+                JsonStreamReader.forEachField(parser, (nodeId, nodeParser) ->
+                {
+                    JsonNode name = nodeParser.<JsonNode>readValueAsTree().path("name");
+                    if (name.isTextual())
+                    {
+                        idsByName.put(name.asText(), nodeId);
+                    }
+                    return true;
+                });
+            }
+            return idsByName;
+        }, null);
+        nodeIds.putAll(ids);
+    }
+
+    /**
+     * Asynchronously gets information about a specific node.
+     *
+     * @param name The name of the node to get information about.
+     * @return Returns a future that completes with the {@link Node node}.
+     */
+    public CompletableFuture<Node> getNodeInfoAsync(String name)
+    {
+        return async(() -> getNodeInfo(name));
+    }
+
+    /**
+     * Discovers the HTTP addresses of the nodes of the cluster and sends subsequent requests to them. If the nodes
+     * cannot be reached, the current hosts are kept until the next attempt.
+     */
+    void sniff()
+    {
+        try
+        {
+            hostPool.update(getHttpAddresses());
+        }
+        catch (RuntimeException e)
+        {
+            // The current hosts are kept
+        }
+    }
+
+    /**
+     * Gets the URLs of the HTTP endpoints published by the nodes of the cluster.
+     */
+    List<String> getHttpAddresses()
+    {
+        TransportRequest request = TransportRequest.get("/_nodes/http")
+                .query("filter_path", HTTP_ADDRESS_FILTER);
+
+        return streamShared(request, parser ->
+        {
+            List<String> urls = new ArrayList<>();
+            if (JsonStreamReader.moveTo(parser, "nodes"))
+            {
+                JsonStreamReader.forEachField(parser, (nodeId, nodeParser) ->
+                {
+                    JsonNode address = nodeParser.<JsonNode>readValueAsTree().path("http").path("publish_address");
+                    if (address.isTextual())
+                    {
+                        urls.add(getURL(address.asText()));
+                    }
+                    return true;
+                });
+            }
+            return urls;
+        }, null);
+    }
+
+    /**
+     * Gets the URL of a published address, which is either {@code ip:port} or {@code hostname/ip:port}.
+     */
+    private static String getURL(String publishAddress)
+    {
+        String address = publishAddress;
+        int slash = publishAddress.indexOf('/');
+        if (slash >= 0)
+        {
+            String hostName = publishAddress.substring(0, slash);
+            String ipAndPort = publishAddress.substring(slash + 1);
+            address = hostName.isEmpty() ? ipAndPort : hostName + ipAndPort.substring(ipAndPort.lastIndexOf(':'));
+        }
+        return "http://" + address;
+    }
+
+    /**
+     * Invalidates everything that is cached about indices, after the index with the given name has been changed.
+     */
+    private void invalidate(String indexName)
+    {
+        indexCatalog.invalidate();
+        responseCache.invalidate(ALL_MAPPINGS_PATH, getMappingsPath(indexName), CLUSTER_HEALTH_PATH);
+
+        // Requests that are already in flight may respond with the old state, so they are not shared with new callers
+        sharedRequests.clear();
+    }
+
+    private Acknowledgement readAcknowledgement(TransportResponse response) throws IOException
+    {
+        if (response.getStatus() == OK)
+        {
+            return Codec.JSON.getReader(Acknowledgement.class).readValue(response.getBody());
+        }
+        return new Acknowledgement();
     }
 
-    private <T> T execute(Function<WebClient, T> mapper)
+    private static byte[] toJson(Object value)
     {
         try
         {
-            WebClient client = client();
-            return mapper.apply(client);
+            return Codec.JSON.getWriter(value.getClass()).writeValueAsBytes(value);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new ElasticsearchException("Could not write the request to the server");
+        }
+    }
+
+    /**
+     * Gets a reader that binds the body of successful responses to the given type.
+     */
+    private static <T> ResponseReader<T> read(Class<T> type)
+    {
+        return read((Type) type);
+    }
+
+    private static <T> ResponseReader<T> read(Type type)
+    {
+        return response ->
+        {
+            if (!response.isSuccessful())
+            {
+                throw new StatusException(response.getStatus());
+            }
+            return Codec.forContentType(response.getContentType()).getReader(type).readValue(response.getBody());
+        };
+    }
+
+    private Optional<Entry<String, Node>> findNode(String nodeFilter, String name)
+    {
+        TransportRequest request = TransportRequest.get("/_nodes/{node}/stats/os", nodeFilter)
+                .query("filter_path", NODE_STATS_FILTER);
+
+        return stream(request, parser ->
+        {
+            AtomicReference<Entry<String, Node>> result = new AtomicReference<>();
+            if (JsonStreamReader.moveTo(parser, "nodes"))
+            {
+                JsonStreamReader.forEachField(parser, (nodeId, nodeParser) ->
+                {
+                    Node node = Codec.readValue(nodeParser, Node.class);
+                    if (name.equals(node.getName()))
+                    {
+                        result.set(new SimpleImmutableEntry<>(nodeId, node));
+                        return false;
+                    }
+                    return true;
+                });
+            }
+            return Optional.ofNullable(result.get());
+        });
+    }
+
+    private <T> T stream(TransportRequest request, ValueReader<T> reader)
+    {
+        return stream(request, reader, null);
+    }
+
+    /**
+     * Executes the given request and reads the response body using a streaming parser, without binding the whole body.
+     * The response is requested in the format of the connection, and parsed in the format that the server responded
+     * with. The response is closed as soon as the reader is done, even if it did not read the whole body. If a value
+     * is given for {@code notFound}, it is returned when the server responds with 404 Not Found.
+     */
+    private <T> T stream(TransportRequest request, ValueReader<T> reader, T notFound)
+    {
+        return execute(request.header(ACCEPT, codec.getMediaType()), streaming(reader, notFound));
+    }
+
+    /**
+     * Like {@link #stream(TransportRequest, ValueReader, Object)}, but shares the response with concurrent callers of
+     * the same request. The reader must therefore only depend on the request.
+     */
+    private <T> T streamShared(TransportRequest request, ValueReader<T> reader, T notFound)
+    {
+        return executeShared(request.header(ACCEPT, codec.getMediaType()), streaming(reader, notFound));
+    }
+
+    private static <T> ResponseReader<T> streaming(ValueReader<T> reader, T notFound)
+    {
+        return response ->
+        {
+            if (notFound != null && response.getStatus() == NOT_FOUND)
+            {
+                return notFound;
+            }
+            if (!response.isSuccessful())
+            {
+                throw new StatusException(response.getStatus());
+            }
+
+            JsonFactory factory = Codec.forContentType(response.getContentType()).getMapper().getFactory();
+            try (JsonParser parser = factory.createParser(response.getBody()))
+            {
+                return reader.read(parser);
+            }
+        };
+    }
+
+    private <T> CompletableFuture<T> async(Supplier<T> supplier)
+    {
+        // Requests made on behalf of a command are bounded by the deadline of the command, even on other threads
+        Optional<CommandContext> context = CommandContext.current();
+        Supplier<T> contextualSupplier = context.isPresent() ? () -> context.get().call(supplier) : supplier;
+        return CompletableFuture.supplyAsync(contextualSupplier, EXECUTOR);
+    }
+
+    private <T> T execute(TransportRequest request, ResponseReader<T> reader)
+    {
+        return execute(request, reader, true);
+    }
+
+    /**
+     * Executes a request, making sure that it does not exceed the deadline of the command that is currently running,
+     * and that it stops when the command is cancelled. In both cases, the request is abandoned and will only continue
+     * until its read timeout, while the tasks that it started on the server are cancelled.
+     */
+    private <T> T execute(TransportRequest request, ResponseReader<T> reader, boolean idempotent)
+    {
+        Optional<CommandContext> current = CommandContext.current();
+        if (!current.isPresent())
+        {
+            return executeWithRetries(request, reader, idempotent);
+        }
+
+        CommandContext context = current.get();
+        long remaining = getRemainingTime(context);
+        request.header(OPAQUE_ID, context.getId());
+        Future<T> future = REQUESTS.submit(() -> executeWithRetries(request, reader, idempotent));
+        Runnable cancelListener = () -> future.cancel(true);
+        context.addCancelListener(cancelListener);
+        try
+        {
+            return future.get(remaining, TimeUnit.MILLISECONDS);
+        }
+        catch (CancellationException e)
+        {
+            cancelTasksAsync(context.getId());
+            throw new ElasticsearchException("The command was cancelled");
+        }
+        catch (TimeoutException e)
+        {
+            future.cancel(true);
+            cancelTasksAsync(context.getId());
+            throw new ElasticsearchException("The command timed out after " + connection.getCommandTimeout() + " ms");
+        }
+        catch (InterruptedException e)
+        {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting for the response");
+        }
+        catch (ExecutionException e)
+        {
+            throw getFailure(e);
+        }
+        finally
+        {
+            context.removeCancelListener(cancelListener);
+        }
+    }
+
+    /**
+     * Executes a read-only request, sharing a single exchange with the server between all concurrent callers of the
+     * same request, so that commands and background tasks that need the same information at the same time don't
+     * flood the cluster with identical requests. The reader must therefore only depend on the request.
+     * <p>
+     * Shared exchanges are only started by callers that don't run on behalf of a command, such as background tasks.
+     * Commands join shared exchanges that are already in flight, waiting within their own deadline, but otherwise
+     * execute their requests on their own, so that they can be cancelled along with their tasks on the server.
+     */
+    private <T> T executeShared(TransportRequest request, ResponseReader<T> reader)
+    {
+        String key = request.getMethod() + " " + request.getURI() + " " + request.getHeaders().get(ACCEPT);
+        if (!sharedRequests.containsKey(key) && CommandContext.current().isPresent())
+        {
+            return execute(request, reader, true);
+        }
+
+        CompletableFuture<Object> exchange = new CompletableFuture<>();
+        CompletableFuture<Object> existing = sharedRequests.putIfAbsent(key, exchange);
+        if (existing == null)
+        {
+            REQUESTS.execute(() ->
+            {
+                // The exchange is removed before it is completed, so that callers arriving after the response don't
+                // get it, but start a new exchange
+                try
+                {
+                    Object value = executeWithRetries(request, reader, true);
+                    sharedRequests.remove(key, exchange);
+                    exchange.complete(value);
+                }
+                catch (RuntimeException | Error e)
+                {
+                    sharedRequests.remove(key, exchange);
+                    exchange.completeExceptionally(e);
+                }
+            });
+        }
+
+        @SuppressWarnings("unchecked")
+        CompletableFuture<T> response = (CompletableFuture<T>) (existing != null ? existing : exchange);
+        return await(response);
+    }
+
+    /**
+     * Waits for a shared response, within the deadline of the command that is currently running.
+     */
+    private <T> T await(CompletableFuture<T> response)
+    {
+        CommandContext context = CommandContext.current().orElse(null);
+        long remaining = context != null ? getRemainingTime(context) : Long.MAX_VALUE;
+
+        // Cancelling a dependent future stops this caller from waiting, without cancelling the shared exchange
+        CompletableFuture<T> waiter = response.thenApply(value -> value);
+        Runnable cancelListener = () -> waiter.cancel(false);
+        if (context != null)
+        {
+            context.addCancelListener(cancelListener);
+        }
+        try
+        {
+            return waiter.get(remaining, TimeUnit.MILLISECONDS);
+        }
+        catch (CancellationException e)
+        {
+            throw new ElasticsearchException("The command was cancelled");
         }
-        catch (WebApplicationException e)
+        catch (TimeoutException e)
         {
-            if (e.getResponse().getStatus() == UNAUTHORIZED)
+            throw new ElasticsearchException("The command timed out after " + connection.getCommandTimeout() + " ms");
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting for the response");
+        }
+        catch (ExecutionException e)
+        {
+            throw getFailure(e);
+        }
+        finally
+        {
+            if (context != null)
+            {
+                context.removeCancelListener(cancelListener);
+            }
+        }
+    }
+
+    /**
+     * Gets the number of milliseconds that the given command has left before its deadline.
+     *
+     * @throws ElasticsearchException Thrown if the command has been cancelled or has already timed out.
+     */
+    private long getRemainingTime(CommandContext context)
+    {
+        int timeout = connection.getCommandTimeout();
+        long remaining = timeout > 0 ? context.getStartTime() + timeout - System.currentTimeMillis() : Long.MAX_VALUE;
+        if (context.isCancelled())
+        {
+            throw new ElasticsearchException("The command was cancelled");
+        }
+        if (remaining <= 0)
+        {
+            throw new ElasticsearchException("The command timed out after " + timeout + " ms");
+        }
+        return remaining;
+    }
+
+    private static RuntimeException getFailure(ExecutionException e)
+    {
+        if (e.getCause() instanceof RuntimeException)
+        {
+            return (RuntimeException) e.getCause();
+        }
+        return new ElasticsearchException("Unknown error received from the server");
+    }
+
+    private void cancelTasksAsync(String opaqueId)
+    {
+        REQUESTS.execute(() ->
+        {
+            try
+            {
+                cancelTasks(opaqueId);
+            }
+            catch (ElasticsearchException e)
+            {
+                // The tasks will finish on their own, which is all we can do
+            }
+        });
+    }
+
+    /**
+     * Cancels the cancellable tasks on the server that were started by requests with the given opaque identifier.
+     */
+    void cancelTasks(String opaqueId)
+    {
+        TransportRequest request = TransportRequest.get("/_tasks")
+                .query("filter_path", TASKS_FILTER);
+
+        List<String> taskIds = stream(request, parser ->
+        {
+            List<String> ids = new ArrayList<>();
+            if (JsonStreamReader.moveTo(parser, "nodes"))
             {
-                throw new ElasticsearchException("Bad credentials");
+                JsonStreamReader.forEachField(parser, (nodeId, nodeParser) ->
+                {
+                    JsonNode tasks = nodeParser.<JsonNode>readValueAsTree().path("tasks");
+                    tasks.fields().forEachRemaining(task ->
+                    {
+                        JsonNode value = task.getValue();
+                        String taskOpaqueId = value.path("headers").path(OPAQUE_ID).asText();
+                        if (value.path("cancellable").asBoolean() && opaqueId.equals(taskOpaqueId))
+                        {
+                            ids.add(task.getKey());
+                        }
+                    });
+                    return true;
+                });
             }
-            throw new ElasticsearchException("Unknown error received from the server");
+            return ids;
+        });
+
+        for (String taskId : taskIds)
+        {
+            execute(TransportRequest.post("/_tasks/{taskId}/_cancel", taskId), response -> null, false);
+        }
+    }
+
+    /**
+     * Executes a request against one of the hosts of the connection.
+     * <p>
+     * Hosts that cannot be reached are marked as dead, and the request is retried on another host if it is idempotent,
+     * or if it never reached the failing host. When all hosts have been tried, or when the cluster responds that it is
+     * overloaded, idempotent requests are retried after a jittered exponential backoff.
+     */
+    private <T> T executeWithRetries(TransportRequest request, ResponseReader<T> reader, boolean idempotent)
+    {
+        request.header(ACCEPT, request.getHeaders().getOrDefault(ACCEPT, Codec.JSON.getMediaType()));
+        request.header(CONTENT_TYPE, request.getHeaders().getOrDefault(CONTENT_TYPE, Codec.JSON.getMediaType()));
+        String authorization = getAuthorization();
+        if (authorization != null)
+        {
+            request.header(AUTHORIZATION, authorization);
+        }
+
+        int retries = 0;
+        for (int attempt = 1;; attempt++)
+        {
+            Host host = hostPool.next();
+            long start = System.nanoTime();
+            TransportResponse response;
+            try
+            {
+                response = transport.send(host.getURL(), request);
+            }
+            catch (IOException e)
+            {
+                hostPool.markDead(host);
+                boolean retriable = idempotent || isConnectFailure(e);
+                if (retriable && attempt < hostPool.size())
+                {
+                    continue;
+                }
+                if (!retriable || retries >= MAXIMUM_RETRIES)
+                {
+                    throw new ElasticsearchException(getFailureMessage(e, host));
+                }
+                backoff(retries++);
+                continue;
+            }
+
+            try
+            {
+                T result = reader.read(response);
+                hostPool.markAlive(host, System.nanoTime() - start);
+                return result;
+            }
+            catch (StatusException e)
+            {
+                int status = e.getStatus();
+                if (status == TOO_MANY_REQUESTS || status == SERVICE_UNAVAILABLE)
+                {
+                    hostPool.markOverloaded(host);
+                    if (!idempotent || retries >= MAXIMUM_RETRIES)
+                    {
+                        throw new ElasticsearchException("The cluster is overloaded, try again later");
+                    }
+                    backoff(retries++);
+                    continue;
+                }
+
+                hostPool.markAlive(host, System.nanoTime() - start);
+                if (status == UNAUTHORIZED)
+                {
+                    throw new ElasticsearchException("Bad credentials");
+                }
+                throw new ElasticsearchException("Unknown error received from the server");
+            }
+            catch (IOException e)
+            {
+                throw new ElasticsearchException("Could not read the response from the server");
+            }
+            finally
+            {
+                response.close();
+            }
+        }
+    }
+
+    private static String getFailureMessage(IOException e, Host host)
+    {
+        if (e instanceof SocketTimeoutException && !isConnectFailure(e))
+        {
+            return "Timed out waiting for a response from " + host.getURL();
+        }
+        return "Could not connect to " + host.getURL();
+    }
+
+    /**
+     * Checks whether the given exception was caused by a failure to connect, in which case the request never reached
+     * the server.
+     */
+    private static boolean isConnectFailure(IOException e)
+    {
+        return e instanceof ConnectException
+                || e instanceof SocketTimeoutException && containsIgnoreCase(e.getMessage(), "connect");
+    }
+
+    /**
+     * Waits before the given retry, for a random time up to a limit that doubles with every retry.
+     */
+    static void backoff(int retry)
+    {
+        long limit = Math.min(MAXIMUM_BACKOFF, MINIMUM_BACKOFF << retry);
+        try
+        {
+            Thread.sleep(ThreadLocalRandom.current().nextLong(limit + 1));
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new ElasticsearchException("Interrupted while waiting to retry the request");
+        }
+    }
+
+    /**
+     * Reads the result of a request from its response.
+     */
+    @FunctionalInterface
+    private interface ResponseReader<T>
+    {
+        T read(TransportResponse response) throws IOException;
+    }
+
+    /**
+     * Thrown by readers when the server responds with an unexpected status.
+     */
+    private static final class StatusException extends RuntimeException
+    {
+        private final int status;
+
+        private StatusException(int status)
+        {
+            super("Unexpected status " + status, null, false, false);
+            this.status = status;
+        }
+
+        private int getStatus()
+        {
+            return status;
         }
     }
 }
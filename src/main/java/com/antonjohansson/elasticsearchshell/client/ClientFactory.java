@@ -15,20 +15,27 @@
  */
 package com.antonjohansson.elasticsearchshell.client;
 
-import org.apache.cxf.jaxrs.client.WebClient;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.session.SessionManager;
 
 /**
- * Creates new {@link WebClient} that can be used to communicate with Elasticsearch.
+ * Creates new {@link Client} that can be used to communicate with Elasticsearch.
+ * <p>
+ * Clients are kept per connection, so that their HTTP connections can be reused between commands and sessions.
  */
 @Component
 public class ClientFactory
 {
     private final PasswordEncrypter passwordEncrypter = new PasswordEncrypter();
+    private final Map<String, Client> clients = new ConcurrentHashMap<>();
     private final SessionManager sessionManager;
 
     @Autowired
@@ -38,15 +45,50 @@ public class ClientFactory
     }
 
     /**
-     * Gets a new {@link Client}.
+     * Gets the {@link Client} of the connection of the current session.
      *
-     * @return Returns the created {@link Client}.
+     * @return Returns the {@link Client}.
      */
     public Client getClient()
     {
         return sessionManager.getCurrentSession()
                 .getOptionalConnection()
-                .map(connection -> new Client(connection, passwordEncrypter))
+                .map(this::getClient)
                 .orElseThrow(() -> new ElasticsearchException("No connection"));
     }
+
+    private Client getClient(Connection connection)
+    {
+        return clients.compute(connection.getName(), (name, client) ->
+        {
+            if (client != null && client.getConnection().equals(connection))
+            {
+                return client;
+            }
+
+            // The connection has been edited since the client was created
+            Optional.ofNullable(client).ifPresent(Client::close);
+            return new Client(connection, passwordEncrypter);
+        });
+    }
+
+    /**
+     * Evicts the {@link Client} of the given connection, closing its HTTP connections. The client is kept as long as any
+     * other session is still connected to the connection, since it is shared between them.
+     *
+     * @param connection The connection to evict the client of.
+     */
+    public void evict(Connection connection)
+    {
+        clients.computeIfPresent(connection.getName(), (name, client) ->
+        {
+            if (sessionManager.isConnected(name))
+            {
+                return client;
+            }
+
+            client.close();
+            return null;
+        });
+    }
 }
@@ -0,0 +1,165 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static com.fasterxml.jackson.databind.DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES;
+import static org.apache.commons.lang3.StringUtils.substringBefore;
+import static org.apache.commons.lang3.StringUtils.trimToEmpty;
+
+import java.io.IOException;
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.module.afterburner.AfterburnerModule;
+
+/**
+ * Defines the formats that Elasticsearch can encode content in.
+ * <p>
+ * SMILE and CBOR are binary formats that are smaller on the wire and cheaper to parse than JSON.
+ * <p>
+ * Each codec keeps readers and writers that are specialized for the types they have been used with, so that types
+ * and (de)serializers are only resolved once. Binding can be accelerated further by generating bytecode with the
+ * Afterburner module, by setting the {@value #AFTERBURNER_PROPERTY} system property to {@code true}.
+ */
+enum Codec
+{
+    JSON("application/json", new JsonFactory()),
+    SMILE("application/smile", new SmileFactory()),
+    CBOR("application/cbor", new CBORFactory());
+
+    static final String AFTERBURNER_PROPERTY = "elasticsearch-shell.afterburner";
+
+    private final String mediaType;
+    private final ObjectMapper mapper;
+    private final Map<Type, ObjectReader> readers = new ConcurrentHashMap<>();
+    private final Map<Type, ObjectWriter> writers = new ConcurrentHashMap<>();
+
+    Codec(String mediaType, JsonFactory factory)
+    {
+        this.mediaType = mediaType;
+        this.mapper = new ObjectMapper(factory);
+        this.mapper.configure(FAIL_ON_UNKNOWN_PROPERTIES, false);
+        if (Boolean.getBoolean(AFTERBURNER_PROPERTY))
+        {
+            this.mapper.registerModule(new AfterburnerModule());
+        }
+    }
+
+    String getMediaType()
+    {
+        return mediaType;
+    }
+
+    /**
+     * Gets the mapper that reads and writes content in this format.
+     */
+    ObjectMapper getMapper()
+    {
+        return mapper;
+    }
+
+    /**
+     * Gets the reader of the given type, which is created on first use and then reused.
+     *
+     * @param type The type to read, either a {@link Class} or a {@link com.fasterxml.jackson.databind.JavaType}.
+     * @return Returns the reader.
+     */
+    ObjectReader getReader(Type type)
+    {
+        // Looking up existing readers first avoids the locking of computeIfAbsent
+        ObjectReader reader = readers.get(type);
+        return reader != null ? reader : readers.computeIfAbsent(type, key -> mapper.readerFor(mapper.constructType(key)));
+    }
+
+    /**
+     * Gets the writer of the given type, which is created on first use and then reused.
+     *
+     * @param type The type to write, either a {@link Class} or a {@link com.fasterxml.jackson.databind.JavaType}.
+     * @return Returns the writer.
+     */
+    ObjectWriter getWriter(Type type)
+    {
+        ObjectWriter writer = writers.get(type);
+        return writer != null ? writer : writers.computeIfAbsent(type, key -> mapper.writerFor(mapper.constructType(key)));
+    }
+
+    /**
+     * Reads the current value of the given parser, which must have been created by one of the codecs, into the given
+     * type.
+     *
+     * @param parser The parser, positioned on the value or before it.
+     * @param type The type to read.
+     * @return Returns the read value.
+     */
+    static <T> T readValue(JsonParser parser, Class<T> type) throws IOException
+    {
+        return forParser(parser).getReader(type).readValue(parser);
+    }
+
+    /**
+     * Gets the codec with the given name, falling back to {@link #JSON}.
+     */
+    static Codec of(String name)
+    {
+        for (Codec codec : values())
+        {
+            if (codec.name().equalsIgnoreCase(name))
+            {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Gets the codec that created the given parser, falling back to {@link #JSON}.
+     */
+    static Codec forParser(JsonParser parser)
+    {
+        for (Codec codec : values())
+        {
+            if (codec.mapper == parser.getCodec())
+            {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+
+    /**
+     * Gets the codec of the given content type, falling back to {@link #JSON}.
+     */
+    static Codec forContentType(String contentType)
+    {
+        String mediaType = trimToEmpty(substringBefore(contentType, ";"));
+        for (Codec codec : values())
+        {
+            if (codec.mediaType.equalsIgnoreCase(mediaType))
+            {
+                return codec;
+            }
+        }
+        return JSON;
+    }
+}
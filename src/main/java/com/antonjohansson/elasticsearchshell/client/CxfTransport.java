@@ -0,0 +1,152 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.util.Collections.emptyList;
+import static javax.ws.rs.core.HttpHeaders.ACCEPT_ENCODING;
+import static javax.ws.rs.core.HttpHeaders.CONTENT_TYPE;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+import javax.ws.rs.ProcessingException;
+import javax.ws.rs.core.Response;
+
+import org.apache.cxf.jaxrs.client.ClientConfiguration;
+import org.apache.cxf.jaxrs.client.WebClient;
+import org.apache.cxf.transport.common.gzip.GZIPInInterceptor;
+import org.apache.cxf.transport.common.gzip.GZIPOutInterceptor;
+import org.apache.cxf.transport.http.HTTPConduit;
+import org.apache.cxf.transports.http.configuration.ConnectionType;
+
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+
+/**
+ * Sends requests using the {@link WebClient} of Apache CXF.
+ */
+final class CxfTransport implements Transport
+{
+    private final Connection connection;
+    private final Map<String, WebClient> webClients = new HashMap<>();
+
+    CxfTransport(Connection connection)
+    {
+        this.connection = connection;
+    }
+
+    /**
+     * Gets the underlying {@link WebClient} of the given host, creating it on first use.
+     * <p>
+     * The {@link WebClient} is created in thread safe mode, so that its HTTP conduit (and the kept alive connections
+     * of it) can be shared by all commands working against this connection.
+     */
+    private synchronized WebClient webClient(String url)
+    {
+        WebClient webClient = webClients.get(url);
+        if (webClient == null)
+        {
+            webClient = WebClient.create(url, emptyList(), true);
+            webClients.put(url, webClient);
+
+            HTTPConduit conduit = WebClient.getConfig(webClient).getHttpConduit();
+            conduit.getClient().setConnection(ConnectionType.KEEP_ALIVE);
+            conduit.getClient().setConnectionTimeout(connection.getConnectTimeout());
+            conduit.getClient().setReceiveTimeout(connection.getReadTimeout());
+
+            // Request compression advertises gzip support by itself, so responses must be decompressed then as well
+            ClientConfiguration configuration = WebClient.getConfig(webClient);
+            if (connection.isCompressResponses() || connection.isCompressRequests())
+            {
+                configuration.getInInterceptors().add(new GZIPInInterceptor());
+            }
+            if (connection.isCompressRequests())
+            {
+                configuration.getOutInterceptors().add(new GZIPOutInterceptor(COMPRESSION_THRESHOLD));
+            }
+        }
+        return webClient;
+    }
+
+    @Override
+    public TransportResponse send(String url, TransportRequest request) throws IOException
+    {
+        WebClient client = webClient(url)
+                .reset()
+                .path(request.getPath())
+                .replaceQuery(request.getQueryString());
+
+        request.getHeaders().forEach(client::header);
+        if (connection.isCompressResponses())
+        {
+            client.header(ACCEPT_ENCODING, "gzip");
+        }
+
+        try
+        {
+            Response response = client.invoke(request.getMethod(), getEntity(request.getBody()));
+            InputStream body = response.hasEntity() ? response.readEntity(InputStream.class) : new ByteArrayInputStream(new byte[0]);
+            return new TransportResponse(response.getStatus(), response.getHeaderString(CONTENT_TYPE), body, response::close);
+        }
+        catch (ProcessingException e)
+        {
+            throw getIOException(e);
+        }
+    }
+
+    /**
+     * Gets the entity of the given body. Bodies that are not backed by a whole array, such as memory-mapped files, are
+     * streamed without being copied onto the heap.
+     */
+    private static Object getEntity(ByteBuffer body)
+    {
+        if (body == null)
+        {
+            return null;
+        }
+        if (body.hasArray() && body.arrayOffset() == 0 && body.position() == 0 && body.remaining() == body.array().length)
+        {
+            return body.array();
+        }
+        return new ByteBufferBackedInputStream(body);
+    }
+
+    /**
+     * Gets the I/O failure that caused the given exception, which tells whether the host could be connected to.
+     */
+    private static IOException getIOException(ProcessingException e)
+    {
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause())
+        {
+            if (cause instanceof IOException)
+            {
+                return (IOException) cause;
+            }
+        }
+        return new IOException(e);
+    }
+
+    @Override
+    public synchronized void close()
+    {
+        webClients.values().forEach(WebClient::close);
+        webClients.clear();
+    }
+}
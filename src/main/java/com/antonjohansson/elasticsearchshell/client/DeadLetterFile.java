@@ -0,0 +1,224 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+/**
+ * Writes actions that failed permanently to a file of newline-delimited JSON, one object per action with the reason
+ * that it failed, the action and its document:
+ *
+ * <pre>
+ * {"error":"failed to parse [number]","action":{"index":{"_id":"1"}},"source":{"number":"one"}}
+ * </pre>
+ *
+ * The file is only created when the first action is written to it, so that loads without failures leave nothing
+ * behind. When it is opened, the file of an earlier load is discarded, except for the part of it that a resumed load
+ * has checkpointed, so that actions that are sent again are not written twice. The file is {@link #sync() synced}
+ * before every checkpoint, so that a checkpoint never moves past actions that failed without being written.
+ */
+final class DeadLetterFile implements Closeable
+{
+    private static final byte[] ERROR = "{\"error\":\"".getBytes(UTF_8);
+    private static final byte[] ACTION = "\",\"action\":".getBytes(UTF_8);
+    private static final byte[] SOURCE = ",\"source\":".getBytes(UTF_8);
+    private static final byte[] END = "}\n".getBytes(UTF_8);
+
+    private final Path path;
+    private FileChannel channel;
+    private OutputStream output;
+    private long length;
+    private boolean closed;
+
+    DeadLetterFile(Path path)
+    {
+        this.path = path;
+    }
+
+    /**
+     * Opens the file, discarding everything after the given length.
+     *
+     * @param length The length of the file when the load that is resumed was checkpointed, or {@code 0} for a new load.
+     */
+    synchronized void open(long length) throws IOException
+    {
+        if (length == 0)
+        {
+            Files.deleteIfExists(path);
+            return;
+        }
+
+        channel = FileChannel.open(path, WRITE);
+        if (channel.size() < length)
+        {
+            channel.close();
+            throw new IOException("'" + path + "' is shorter than when the checkpoint was written");
+        }
+        channel.truncate(length);
+        channel.position(length);
+        output = new BufferedOutputStream(Channels.newOutputStream(channel));
+        this.length = length;
+    }
+
+    /**
+     * Formats the given action as a line of the file.
+     *
+     * @param action The action, followed by its document unless it is a deletion, as they were read from the file.
+     * @param error The reason that the action failed.
+     * @return Returns the line.
+     */
+    static byte[] format(ByteBuffer action, String error)
+    {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        ByteBuffer lines = action.duplicate();
+        write(output, ERROR);
+        write(output, JsonStringEncoder.getInstance().quoteAsUTF8(error));
+        write(output, ACTION);
+        writeLine(output, lines);
+        if (skipBlank(lines))
+        {
+            write(output, SOURCE);
+            writeLine(output, lines);
+        }
+        write(output, END);
+        return output.toByteArray();
+    }
+
+    /**
+     * Writes the given line, as formatted by {@link #format(ByteBuffer, String)}.
+     */
+    synchronized void write(byte[] line) throws IOException
+    {
+        if (closed)
+        {
+            throw new IOException("'" + path + "' has already been closed");
+        }
+        if (output == null)
+        {
+            channel = FileChannel.open(path, CREATE, WRITE, TRUNCATE_EXISTING);
+            output = new BufferedOutputStream(Channels.newOutputStream(channel));
+        }
+        output.write(line);
+        length += line.length;
+    }
+
+    /**
+     * Gets the length of the file, including the lines that have not been synced yet.
+     */
+    synchronized long getLength()
+    {
+        return length;
+    }
+
+    /**
+     * Flushes the actions that have been written and forces them to the disk.
+     */
+    synchronized void sync() throws IOException
+    {
+        if (output != null)
+        {
+            output.flush();
+            channel.force(true);
+        }
+    }
+
+    private static void write(ByteArrayOutputStream output, byte[] bytes)
+    {
+        output.write(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes the next line of the given buffer, without its surrounding whitespace.
+     */
+    private static void writeLine(ByteArrayOutputStream output, ByteBuffer lines)
+    {
+        skipBlank(lines);
+        int start = lines.position();
+        int end = start;
+        while (lines.hasRemaining())
+        {
+            byte value = lines.get();
+            if (value == '\n')
+            {
+                break;
+            }
+            if (!isWhitespace(value))
+            {
+                end = lines.position();
+            }
+        }
+        byte[] line = new byte[end - start];
+        ByteBuffer copy = lines.duplicate();
+        copy.position(start);
+        copy.get(line);
+        write(output, line);
+    }
+
+    /**
+     * Skips whitespace, returning whether anything else remains.
+     */
+    private static boolean skipBlank(ByteBuffer lines)
+    {
+        while (lines.hasRemaining())
+        {
+            if (!isWhitespace(lines.get(lines.position())))
+            {
+                return true;
+            }
+            lines.get();
+        }
+        return false;
+    }
+
+    private static boolean isWhitespace(byte value)
+    {
+        return value == ' ' || value == '\t' || value == '\r' || value == '\n';
+    }
+
+    @Override
+    public synchronized void close() throws IOException
+    {
+        closed = true;
+        if (output != null)
+        {
+            try
+            {
+                output.close();
+            }
+            finally
+            {
+                output = null;
+                channel = null;
+            }
+        }
+    }
+}
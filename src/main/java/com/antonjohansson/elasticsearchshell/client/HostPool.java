@@ -0,0 +1,276 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.util.function.Function.identity;
+import static java.util.stream.Collectors.toList;
+import static java.util.stream.Collectors.toMap;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+import java.util.stream.Stream;
+
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+
+/**
+ * Keeps track of the hosts of a cluster and chooses which host to send each request to.
+ * <p>
+ * Hosts that fail are marked as dead and are not chosen again until their backoff has passed. The backoff is doubled
+ * for every consecutive failure. If all hosts are dead, the host that is closest to being retried is chosen.
+ * <p>
+ * Hosts that repeatedly respond that they are overloaded get their circuit opened, and are not chosen at all until it
+ * is closed again. If the circuits of all hosts are open, requests fail fast instead of adding to the load.
+ * <p>
+ * The hosts that the pool is created with are kept as seeds when the hosts are replaced. The seeds that are no longer
+ * among the hosts are only chosen when no host is alive, so that the cluster can still be reached, and the hosts
+ * discovered again, when the replacing hosts can't be reached from here.
+ * <p>
+ * When choosing the host with the least latency, every {@value #PROBE_INTERVAL}th request is sent to one of the other
+ * hosts instead, so that their latencies are measured again and a host that was slow for a while gets chosen again
+ * once it has recovered.
+ */
+class HostPool
+{
+    static final long MINIMUM_BACKOFF = TimeUnit.SECONDS.toMillis(1);
+    static final long MAXIMUM_BACKOFF = TimeUnit.SECONDS.toMillis(30);
+    static final int CIRCUIT_THRESHOLD = 5;
+    static final long CIRCUIT_OPEN_TIME = TimeUnit.SECONDS.toMillis(10);
+    static final int PROBE_INTERVAL = 20;
+    private static final double LATENCY_WEIGHT = 0.3;
+
+    private final List<Host> seeds;
+    private List<Host> hosts;
+    private final Strategy strategy;
+    private final LongSupplier clock;
+    private final AtomicInteger counter = new AtomicInteger();
+
+    HostPool(Collection<String> urls, Strategy strategy, LongSupplier clock)
+    {
+        this.seeds = urls.stream().map(Host::new).collect(toList());
+        this.hosts = seeds;
+        this.strategy = strategy;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the number of hosts in this pool, including the seeds that are no longer among them.
+     */
+    synchronized int size()
+    {
+        return hosts.size() + getFallbacks().size();
+    }
+
+    /**
+     * Gets the URLs of the hosts in this pool.
+     */
+    synchronized List<String> getURLs()
+    {
+        return hosts.stream().map(Host::getURL).collect(toList());
+    }
+
+    /**
+     * Replaces the hosts of this pool. The state of hosts that are kept is retained.
+     *
+     * @param urls The URLs of the new hosts. If empty, the current hosts are kept.
+     */
+    synchronized void update(Collection<String> urls)
+    {
+        if (urls.isEmpty())
+        {
+            return;
+        }
+
+        Map<String, Host> current = Stream.concat(hosts.stream(), seeds.stream())
+                .distinct()
+                .collect(toMap(Host::getURL, identity()));
+        hosts = urls.stream()
+                .distinct()
+                .map(url -> current.getOrDefault(url, new Host(url)))
+                .collect(toList());
+    }
+
+    /**
+     * Chooses the host to send the next request to.
+     *
+     * @throws ElasticsearchException Thrown if the circuits of all hosts are open.
+     */
+    synchronized Host next()
+    {
+        long now = clock.getAsLong();
+        List<Host> closed = new ArrayList<>();
+        List<Host> alive = new ArrayList<>();
+        addAvailable(hosts, now, closed, alive);
+        if (alive.isEmpty())
+        {
+            addAvailable(getFallbacks(), now, closed, alive);
+        }
+
+        if (closed.isEmpty())
+        {
+            throw new ElasticsearchException("The cluster is overloaded, try again later");
+        }
+        if (alive.isEmpty())
+        {
+            return closed.stream()
+                    .min((host1, host2) -> Long.compare(host1.deadUntil, host2.deadUntil))
+                    .get();
+        }
+
+        int request = counter.getAndIncrement();
+        if (strategy == Strategy.LEAST_LATENCY)
+        {
+            Host fastest = alive.stream()
+                    .min((host1, host2) -> Double.compare(host1.latency, host2.latency))
+                    .get();
+            if (alive.size() == 1 || Math.floorMod(request + 1, PROBE_INTERVAL) != 0)
+            {
+                return fastest;
+            }
+
+            alive.remove(fastest);
+            int probe = Math.floorMod(request / PROBE_INTERVAL, alive.size());
+            return alive.get(probe);
+        }
+
+        int index = Math.floorMod(request, alive.size());
+        return alive.get(index);
+    }
+
+    /**
+     * Adds the given hosts whose circuits are closed, and among them the ones that are alive, to the given lists.
+     */
+    private static void addAvailable(List<Host> candidates, long now, List<Host> closed, List<Host> alive)
+    {
+        for (Host host : candidates)
+        {
+            if (host.openUntil > now)
+            {
+                continue;
+            }
+            closed.add(host);
+            if (host.deadUntil <= now)
+            {
+                alive.add(host);
+            }
+        }
+    }
+
+    /**
+     * Gets the seeds that are no longer among the hosts.
+     */
+    private List<Host> getFallbacks()
+    {
+        return seeds.stream()
+                .filter(seed -> !hosts.contains(seed))
+                .collect(toList());
+    }
+
+    /**
+     * Marks the given host as alive, after it successfully responded.
+     *
+     * @param host The host that responded.
+     * @param latency The number of nanoseconds that it took for the host to respond.
+     */
+    synchronized void markAlive(Host host, long latency)
+    {
+        host.failures = 0;
+        host.deadUntil = 0;
+        host.overloads = 0;
+        host.latency = host.latency == 0 ? latency : LATENCY_WEIGHT * latency + (1 - LATENCY_WEIGHT) * host.latency;
+    }
+
+    /**
+     * Marks the given host as dead, after it could not be reached.
+     *
+     * @param host The host that could not be reached.
+     */
+    synchronized void markDead(Host host)
+    {
+        host.failures++;
+        long backoff = MINIMUM_BACKOFF << Math.min(host.failures - 1, 30);
+        host.deadUntil = clock.getAsLong() + Math.min(backoff, MAXIMUM_BACKOFF);
+    }
+
+    /**
+     * Marks the given host as overloaded, after it responded that it could not handle the request. The circuit of the
+     * host is opened after a number of consecutive overloads, and opened again on every overload after that, until the
+     * host successfully responds.
+     *
+     * @param host The overloaded host.
+     */
+    synchronized void markOverloaded(Host host)
+    {
+        host.overloads++;
+        if (host.overloads >= CIRCUIT_THRESHOLD)
+        {
+            host.openUntil = clock.getAsLong() + CIRCUIT_OPEN_TIME;
+        }
+    }
+
+    /**
+     * Defines how hosts are chosen.
+     */
+    enum Strategy
+    {
+        /** Chooses the alive hosts in turn. */
+        ROUND_ROBIN,
+
+        /** Chooses the alive host that has responded the fastest recently. */
+        LEAST_LATENCY;
+
+        /**
+         * Gets the strategy with the given name, falling back to {@link #ROUND_ROBIN}.
+         */
+        static Strategy of(String name)
+        {
+            return "least-latency".equalsIgnoreCase(name) ? LEAST_LATENCY : ROUND_ROBIN;
+        }
+    }
+
+    /**
+     * A host of the cluster.
+     */
+    static final class Host
+    {
+        private final String url;
+        private int failures;
+        private long deadUntil;
+        private int overloads;
+        private long openUntil;
+        private double latency;
+
+        private Host(String url)
+        {
+            this.url = url;
+        }
+
+        String getURL()
+        {
+            return url;
+        }
+
+        @Override
+        public String toString()
+        {
+            return url;
+        }
+    }
+}
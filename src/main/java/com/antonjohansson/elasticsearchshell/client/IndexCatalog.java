@@ -0,0 +1,175 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the names of the indices of a cluster in a sorted array, so that the names starting with a given prefix can
+ * be found using binary search.
+ * <p>
+ * The names are loaded on first use. When they have grown older than the time to live, they are refreshed in the
+ * background while the previous names are still served.
+ */
+public class IndexCatalog
+{
+    private final Supplier<Collection<String>> loader;
+    private final Executor executor;
+    private final long timeToLive;
+    private final LongSupplier clock;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final AtomicLong generation = new AtomicLong();
+    private volatile Snapshot snapshot;
+
+    IndexCatalog(Supplier<Collection<String>> loader, Executor executor, long timeToLive, LongSupplier clock)
+    {
+        this.loader = loader;
+        this.executor = executor;
+        this.timeToLive = timeToLive;
+        this.clock = clock;
+    }
+
+    /**
+     * Gets the names of all indices that start with the given prefix.
+     *
+     * @param prefix The prefix of the names to get.
+     * @return Returns the matching names, in sorted order.
+     */
+    public List<String> getNamesStartingWith(String prefix)
+    {
+        Snapshot current = snapshot;
+        if (current == null)
+        {
+            current = load();
+        }
+        else if (clock.getAsLong() - current.loadedAt >= timeToLive)
+        {
+            refreshInBackground();
+        }
+        return current.getNamesStartingWith(prefix);
+    }
+
+    /**
+     * Loads the names in the background, unless they have already been loaded.
+     */
+    void prefetch()
+    {
+        if (snapshot == null)
+        {
+            refreshInBackground();
+        }
+    }
+
+    /**
+     * Invalidates the names, forcing them to be loaded again on next use.
+     */
+    public void invalidate()
+    {
+        synchronized (generation)
+        {
+            generation.incrementAndGet();
+            snapshot = null;
+        }
+    }
+
+    private Snapshot load()
+    {
+        long expectedGeneration = generation.get();
+        Snapshot loaded = new Snapshot(loader.get(), clock.getAsLong());
+        synchronized (generation)
+        {
+            // Don't publish names that were loaded before an invalidation
+            if (generation.get() == expectedGeneration)
+            {
+                snapshot = loaded;
+            }
+        }
+        return loaded;
+    }
+
+    private void refreshInBackground()
+    {
+        if (!refreshing.compareAndSet(false, true))
+        {
+            return;
+        }
+
+        try
+        {
+            executor.execute(() ->
+            {
+                try
+                {
+                    load();
+                }
+                catch (RuntimeException e)
+                {
+                    // The previous names are kept until a refresh succeeds
+                }
+                finally
+                {
+                    refreshing.set(false);
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            // The executor is busy, so the names are refreshed on a later use instead of on the calling thread
+            refreshing.set(false);
+        }
+    }
+
+    /**
+     * The names loaded at a specific point in time.
+     */
+    private static final class Snapshot
+    {
+        private final String[] names;
+        private final long loadedAt;
+
+        private Snapshot(Collection<String> names, long loadedAt)
+        {
+            this.names = names.toArray(new String[names.size()]);
+            this.loadedAt = loadedAt;
+            Arrays.sort(this.names);
+        }
+
+        private List<String> getNamesStartingWith(String prefix)
+        {
+            int index = Arrays.binarySearch(names, prefix);
+            if (index < 0)
+            {
+                index = -index - 1;
+            }
+
+            List<String> result = new ArrayList<>();
+            while (index < names.length && names[index].startsWith(prefix))
+            {
+                result.add(names[index++]);
+            }
+            return result;
+        }
+    }
+}
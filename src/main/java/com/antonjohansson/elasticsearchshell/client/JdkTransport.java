@@ -0,0 +1,104 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.ByteBuffer;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+
+/**
+ * Sends requests using the {@link HttpURLConnection} of the JDK, which has no dependencies and little overhead per
+ * request. Connections are kept alive by the JDK, as long as response bodies are fully read.
+ */
+final class JdkTransport implements Transport
+{
+    private static final String GZIP = "gzip";
+
+    private final Connection connection;
+
+    JdkTransport(Connection connection)
+    {
+        this.connection = connection;
+    }
+
+    @Override
+    public TransportResponse send(String url, TransportRequest request) throws IOException
+    {
+        HttpURLConnection http = (HttpURLConnection) new URL(url + request.getURI()).openConnection();
+        http.setRequestMethod(request.getMethod());
+        http.setConnectTimeout(connection.getConnectTimeout());
+        http.setReadTimeout(connection.getReadTimeout());
+        http.setUseCaches(false);
+        request.getHeaders().forEach(http::setRequestProperty);
+        if (connection.isCompressResponses())
+        {
+            http.setRequestProperty("Accept-Encoding", GZIP);
+        }
+
+        ByteBuffer body = request.getBody();
+        if (body != null)
+        {
+            if (connection.isCompressRequests() && body.remaining() >= COMPRESSION_THRESHOLD)
+            {
+                body = compress(body);
+                http.setRequestProperty("Content-Encoding", GZIP);
+            }
+            http.setDoOutput(true);
+            http.setFixedLengthStreamingMode(body.remaining());
+            try (OutputStream stream = http.getOutputStream())
+            {
+                TransportRequest.write(body, stream);
+            }
+        }
+
+        int status = http.getResponseCode();
+        InputStream stream = status >= HttpURLConnection.HTTP_BAD_REQUEST ? http.getErrorStream() : http.getInputStream();
+        if (stream == null)
+        {
+            stream = new ByteArrayInputStream(new byte[0]);
+        }
+        else if (GZIP.equalsIgnoreCase(http.getContentEncoding()))
+        {
+            stream = new GZIPInputStream(stream);
+        }
+        return new TransportResponse(status, http.getContentType(), stream, () -> { });
+    }
+
+    private static ByteBuffer compress(ByteBuffer body) throws IOException
+    {
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(body.remaining() / 4);
+        try (OutputStream stream = new GZIPOutputStream(compressed))
+        {
+            TransportRequest.write(body, stream);
+        }
+        return ByteBuffer.wrap(compressed.toByteArray());
+    }
+
+    @Override
+    public void close()
+    {
+        // Kept alive connections are owned by the JDK and closed when idle
+    }
+}
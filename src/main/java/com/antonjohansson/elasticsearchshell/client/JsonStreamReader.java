@@ -0,0 +1,144 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static com.fasterxml.jackson.core.JsonToken.FIELD_NAME;
+import static com.fasterxml.jackson.core.JsonToken.START_OBJECT;
+
+import java.io.IOException;
+
+import com.fasterxml.jackson.core.JsonParser;
+
+/**
+ * Navigates JSON documents using a streaming {@link JsonParser}.
+ * <p>
+ * Subtrees that are not of interest are skipped without being bound to any objects, which keeps memory usage low
+ * when only a small part of a large response is needed.
+ */
+final class JsonStreamReader
+{
+    // Prevent instantiation
+    private JsonStreamReader()
+    {
+    }
+
+    /**
+     * Moves the parser to the value of the field with the given path, starting from the root of the document.
+     *
+     * @param parser The parser to move.
+     * @param path The names of the fields, from the root of the document, to move to.
+     * @return Returns {@code true} if the field was found; otherwise {@code false}.
+     */
+    static boolean moveTo(JsonParser parser, String... path) throws IOException
+    {
+        if (parser.nextToken() != START_OBJECT)
+        {
+            return false;
+        }
+
+        for (int i = 0; i < path.length; i++)
+        {
+            if (i > 0 && parser.getCurrentToken() != START_OBJECT)
+            {
+                return false;
+            }
+            if (!moveToField(parser, path[i]))
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Moves the parser to the value of the field with the given name in the object that the parser is currently on.
+     *
+     * @param parser The parser to move, positioned on the start of an object.
+     * @param name The name of the field to move to.
+     * @return Returns {@code true} if the field was found; otherwise {@code false}.
+     */
+    static boolean moveToField(JsonParser parser, String name) throws IOException
+    {
+        while (parser.nextToken() == FIELD_NAME)
+        {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (name.equals(fieldName))
+            {
+                return true;
+            }
+            parser.skipChildren();
+        }
+        return false;
+    }
+
+    /**
+     * Visits the fields of the object that the parser is currently on, until the visitor asks to stop.
+     *
+     * @param parser The parser, positioned on the start of an object.
+     * @param visitor The visitor of the fields.
+     */
+    static void forEachField(JsonParser parser, FieldVisitor visitor) throws IOException
+    {
+        if (parser.getCurrentToken() != START_OBJECT)
+        {
+            return;
+        }
+
+        while (parser.nextToken() == FIELD_NAME)
+        {
+            String fieldName = parser.getCurrentName();
+            parser.nextToken();
+            if (!visitor.visit(fieldName, parser))
+            {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Visits fields of JSON objects.
+     */
+    @FunctionalInterface
+    interface FieldVisitor
+    {
+        /**
+         * Visits a field. The visitor must either read or {@link JsonParser#skipChildren() skip} the value.
+         *
+         * @param name The name of the field.
+         * @param parser The parser, positioned on the value of the field.
+         * @return Returns {@code true} to continue with the next field, or {@code false} to stop.
+         */
+        boolean visit(String name, JsonParser parser) throws IOException;
+    }
+
+    /**
+     * Reads a value from a {@link JsonParser}.
+     *
+     * @param <T> The type of the value.
+     */
+    @FunctionalInterface
+    interface ValueReader<T>
+    {
+        /**
+         * Reads the value.
+         *
+         * @param parser The parser, positioned before the root of the document.
+         * @return Returns the read value.
+         */
+        T read(JsonParser parser) throws IOException;
+    }
+}
@@ -0,0 +1,182 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Caches responses of read-only requests for a limited time.
+ * <p>
+ * The cache holds at most a given number of responses. When it is full, the least recently used response is evicted.
+ * Hits and misses are counted per endpoint.
+ */
+public class ResponseCache
+{
+    private final int maximumSize;
+    private final LongSupplier clock;
+    private final Map<String, CachedResponse> responses;
+    private final Map<String, Statistics> statistics = new ConcurrentHashMap<>();
+    private long generation;
+
+    /**
+     * Creates a new response cache.
+     *
+     * @param maximumSize The maximum number of responses to hold, where zero disables the cache.
+     * @param clock The clock, in milliseconds, used to expire responses.
+     */
+    public ResponseCache(int maximumSize, LongSupplier clock)
+    {
+        this.maximumSize = maximumSize;
+        this.clock = clock;
+        this.responses = new LinkedHashMap<String, CachedResponse>(16, 0.75f, true)
+        {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CachedResponse> eldest)
+            {
+                return size() > maximumSize;
+            }
+        };
+    }
+
+    /**
+     * Gets a cached response, or loads and caches it if it is missing or expired.
+     *
+     * @param endpoint The name of the endpoint, used for statistics.
+     * @param key The key of the response, typically the path of the request.
+     * @param timeToLive The number of milliseconds to keep the response.
+     * @param loader The loader of the response.
+     * @return Returns the response.
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T get(String endpoint, String key, long timeToLive, Supplier<T> loader)
+    {
+        Statistics endpointStatistics = statistics.computeIfAbsent(endpoint, name -> new Statistics());
+        long expectedGeneration;
+        synchronized (this)
+        {
+            CachedResponse response = responses.get(key);
+            if (response != null && response.expiresAt > clock.getAsLong())
+            {
+                endpointStatistics.hits.increment();
+                return (T) response.value;
+            }
+            expectedGeneration = generation;
+        }
+
+        endpointStatistics.misses.increment();
+        T value = loader.get();
+        synchronized (this)
+        {
+            // Don't cache responses that were loaded before an invalidation
+            if (maximumSize > 0 && generation == expectedGeneration)
+            {
+                responses.put(key, new CachedResponse(value, clock.getAsLong() + timeToLive));
+            }
+        }
+        return value;
+    }
+
+    /**
+     * Invalidates the responses with the given keys.
+     *
+     * @param keys The keys of the responses to invalidate.
+     */
+    public synchronized void invalidate(String... keys)
+    {
+        generation++;
+        for (String key : keys)
+        {
+            responses.remove(key);
+        }
+    }
+
+    /**
+     * Gets the number of responses that are currently held.
+     *
+     * @return Returns the number of responses.
+     */
+    public synchronized int getSize()
+    {
+        return responses.size();
+    }
+
+    public int getMaximumSize()
+    {
+        return maximumSize;
+    }
+
+    /**
+     * Gets the statistics of each endpoint that has been requested through this cache.
+     *
+     * @return Returns the statistics, by endpoint name.
+     */
+    public Map<String, Statistics> getStatistics()
+    {
+        return new TreeMap<>(statistics);
+    }
+
+    /**
+     * A cached response.
+     */
+    private static final class CachedResponse
+    {
+        private final Object value;
+        private final long expiresAt;
+
+        private CachedResponse(Object value, long expiresAt)
+        {
+            this.value = value;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    /**
+     * Holds the number of hits and misses of an endpoint.
+     */
+    public static final class Statistics
+    {
+        private final LongAdder hits = new LongAdder();
+        private final LongAdder misses = new LongAdder();
+
+        public long getHits()
+        {
+            return hits.sum();
+        }
+
+        public long getMisses()
+        {
+            return misses.sum();
+        }
+
+        /**
+         * Gets the ratio of requests that were served from the cache.
+         *
+         * @return Returns the hit ratio, between zero and one.
+         */
+        public double getHitRatio()
+        {
+            long hitCount = getHits();
+            long total = hitCount + getMisses();
+            return total == 0 ? 0 : (double) hitCount / total;
+        }
+    }
+}
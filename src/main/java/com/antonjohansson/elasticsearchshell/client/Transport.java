@@ -0,0 +1,63 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.IOException;
+
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+
+/**
+ * Sends HTTP requests to the hosts of a cluster.
+ * <p>
+ * Implementations are shared by all commands working against a connection, so they must be thread safe. They apply
+ * the timeouts and compression settings of the connection, and should keep connections to the hosts alive.
+ */
+interface Transport
+{
+    /** The minimum size of request bodies that are compressed, when request compression is enabled. */
+    int COMPRESSION_THRESHOLD = 1024;
+
+    /**
+     * Sends a request to a host.
+     *
+     * @param url The URL of the host.
+     * @param request The request to send.
+     * @return Returns the response, whatever its status is.
+     * @throws IOException Thrown if the host could not be reached, or did not respond in time. A
+     *             {@link java.net.ConnectException} means that the request never reached the host.
+     */
+    TransportResponse send(String url, TransportRequest request) throws IOException;
+
+    /**
+     * Closes this transport, releasing the connections held by it.
+     */
+    void close();
+
+    /**
+     * Creates the transport that is configured for the given connection, falling back to the CXF transport.
+     *
+     * @param connection The connection to create a transport for.
+     * @return Returns the new transport.
+     */
+    static Transport of(Connection connection)
+    {
+        if ("jdk".equalsIgnoreCase(connection.getTransport()))
+        {
+            return new JdkTransport(connection);
+        }
+        return new CxfTransport(connection);
+    }
+}
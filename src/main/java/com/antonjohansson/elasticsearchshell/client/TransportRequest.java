@@ -0,0 +1,200 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UnsupportedEncodingException;
+import java.net.URLEncoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A request that is sent through a {@link Transport}, independently of the host that it is sent to.
+ */
+final class TransportRequest
+{
+    private static final Pattern TEMPLATE_VARIABLE = Pattern.compile("\\{[^}]*\\}");
+
+    private final String method;
+    private final String path;
+    private final Map<String, String> query = new LinkedHashMap<>();
+    private final Map<String, String> headers = new LinkedHashMap<>();
+    private ByteBuffer body;
+
+    private TransportRequest(String method, String path)
+    {
+        this.method = method;
+        this.path = path;
+    }
+
+    static TransportRequest get(String template, Object... values)
+    {
+        return new TransportRequest("GET", expand(template, values));
+    }
+
+    static TransportRequest put(String template, Object... values)
+    {
+        return new TransportRequest("PUT", expand(template, values));
+    }
+
+    static TransportRequest post(String template, Object... values)
+    {
+        return new TransportRequest("POST", expand(template, values));
+    }
+
+    static TransportRequest delete(String template, Object... values)
+    {
+        return new TransportRequest("DELETE", expand(template, values));
+    }
+
+    /**
+     * Replaces the variables of the given path template, such as <code>{indexName}</code>, with the given values in
+     * order. The values are encoded as path segments.
+     */
+    private static String expand(String template, Object... values)
+    {
+        Matcher matcher = TEMPLATE_VARIABLE.matcher(template);
+        StringBuffer path = new StringBuffer();
+        int index = 0;
+        while (matcher.find())
+        {
+            String segment = encode(String.valueOf(values[index++]))
+                    .replace("+", "%20")
+                    .replace("%3A", ":")
+                    .replace("%2C", ",");
+            matcher.appendReplacement(path, Matcher.quoteReplacement(segment));
+        }
+        matcher.appendTail(path);
+        return path.toString();
+    }
+
+    private static String encode(String value)
+    {
+        try
+        {
+            return URLEncoder.encode(value, UTF_8.name());
+        }
+        catch (UnsupportedEncodingException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    TransportRequest query(String name, String value)
+    {
+        query.put(name, value);
+        return this;
+    }
+
+    TransportRequest header(String name, String value)
+    {
+        headers.put(name, value);
+        return this;
+    }
+
+    TransportRequest body(byte[] body)
+    {
+        return body(ByteBuffer.wrap(body));
+    }
+
+    /**
+     * Sets the body of this request to the remaining bytes of the given buffer, which can be a slice of a
+     * memory-mapped file. The buffer is sent as it is, without being copied, so it must not be changed.
+     */
+    TransportRequest body(ByteBuffer body)
+    {
+        this.body = body;
+        return this;
+    }
+
+    String getMethod()
+    {
+        return method;
+    }
+
+    String getPath()
+    {
+        return path;
+    }
+
+    /**
+     * Gets the encoded query string of this request, without the leading question mark.
+     */
+    String getQueryString()
+    {
+        StringBuilder queryString = new StringBuilder();
+        for (Map.Entry<String, String> parameter : query.entrySet())
+        {
+            if (queryString.length() > 0)
+            {
+                queryString.append('&');
+            }
+            queryString.append(encode(parameter.getKey())).append('=').append(encode(parameter.getValue()));
+        }
+        return queryString.toString();
+    }
+
+    /**
+     * Gets the path and query string of this request, relative to the URL of a host.
+     */
+    String getURI()
+    {
+        String queryString = getQueryString();
+        return queryString.isEmpty() ? path : path + "?" + queryString;
+    }
+
+    Map<String, String> getHeaders()
+    {
+        return headers;
+    }
+
+    /**
+     * Gets the body of this request, which can be read without affecting subsequent attempts to send the request.
+     *
+     * @return Returns the body, or {@code null} if the request has no body.
+     */
+    ByteBuffer getBody()
+    {
+        return body == null ? null : body.duplicate();
+    }
+
+    /**
+     * Writes the given body to the given stream. Bodies that are not backed by an array, such as memory-mapped
+     * files, are written through a channel without being copied onto the heap as a whole.
+     */
+    static void write(ByteBuffer body, OutputStream stream) throws IOException
+    {
+        if (body.hasArray())
+        {
+            stream.write(body.array(), body.arrayOffset() + body.position(), body.remaining());
+            return;
+        }
+
+        WritableByteChannel channel = Channels.newChannel(stream);
+        while (body.hasRemaining())
+        {
+            channel.write(body);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A response that is received through a {@link Transport}. The body must be closed when it has been read, so that the
+ * connection can be reused.
+ */
+final class TransportResponse implements Closeable
+{
+    private final int status;
+    private final String contentType;
+    private final InputStream body;
+    private final Runnable release;
+
+    /**
+     * Creates a new response.
+     *
+     * @param status The HTTP status code.
+     * @param contentType The content type of the body, or {@code null} if not known.
+     * @param body The decoded body.
+     * @param release Releases the resources of the response, after the body has been closed.
+     */
+    TransportResponse(int status, String contentType, InputStream body, Runnable release)
+    {
+        this.status = status;
+        this.contentType = contentType;
+        this.body = body;
+        this.release = release;
+    }
+
+    int getStatus()
+    {
+        return status;
+    }
+
+    boolean isSuccessful()
+    {
+        return status / 100 == 2;
+    }
+
+    String getContentType()
+    {
+        return contentType;
+    }
+
+    InputStream getBody()
+    {
+        return body;
+    }
+
+    @Override
+    public void close()
+    {
+        try
+        {
+            body.close();
+        }
+        catch (IOException e)
+        {
+            // The connection is discarded instead of reused
+        }
+        finally
+        {
+            release.run();
+        }
+    }
+}
@@ -0,0 +1,175 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.common;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Supplier;
+
+/**
+ * Keeps track of the command that is currently running on a thread, so that the requests made by the command can be
+ * bounded by a deadline and cancelled by the user.
+ */
+public final class CommandContext
+{
+    private static final ThreadLocal<CommandContext> CURRENT = new ThreadLocal<>();
+    private static final Set<CommandContext> RUNNING = ConcurrentHashMap.newKeySet();
+
+    private final String id = "elasticsearch-shell-" + UUID.randomUUID();
+    private final long startTime;
+    private final List<Runnable> cancelListeners = new CopyOnWriteArrayList<>();
+    private volatile boolean cancelled;
+
+    private CommandContext(long startTime)
+    {
+        this.startTime = startTime;
+    }
+
+    /**
+     * Begins a new command on the current thread.
+     *
+     * @return Returns the context of the new command.
+     */
+    public static CommandContext begin()
+    {
+        CommandContext context = new CommandContext(System.currentTimeMillis());
+        CURRENT.set(context);
+        RUNNING.add(context);
+        return context;
+    }
+
+    /**
+     * Gets the context of the command that is currently running on this thread.
+     *
+     * @return Returns the current context, if a command is running.
+     */
+    public static Optional<CommandContext> current()
+    {
+        return Optional.ofNullable(CURRENT.get());
+    }
+
+    /**
+     * Ends the command on the current thread.
+     */
+    public void end()
+    {
+        RUNNING.remove(this);
+        CURRENT.remove();
+    }
+
+    /**
+     * Cancels all commands that are currently running.
+     *
+     * @return Returns whether any command was running.
+     */
+    public static boolean cancelRunning()
+    {
+        boolean running = false;
+        for (CommandContext context : RUNNING)
+        {
+            context.cancel();
+            running = true;
+        }
+        return running;
+    }
+
+    /**
+     * Gets the unique identifier of the command, which is sent with its requests so that the work they started on the
+     * server can be found.
+     *
+     * @return Returns the identifier.
+     */
+    public String getId()
+    {
+        return id;
+    }
+
+    /**
+     * Gets the time when the command was started, in milliseconds since the epoch.
+     *
+     * @return Returns the start time.
+     */
+    public long getStartTime()
+    {
+        return startTime;
+    }
+
+    /**
+     * Cancels the command, notifying the listeners that are currently registered.
+     */
+    public void cancel()
+    {
+        cancelled = true;
+        cancelListeners.forEach(Runnable::run);
+    }
+
+    public boolean isCancelled()
+    {
+        return cancelled;
+    }
+
+    /**
+     * Registers a listener that is notified when the command is cancelled. If the command already is cancelled, the
+     * listener is notified immediately.
+     *
+     * @param listener The listener to notify.
+     */
+    public void addCancelListener(Runnable listener)
+    {
+        cancelListeners.add(listener);
+        if (cancelled)
+        {
+            listener.run();
+        }
+    }
+
+    public void removeCancelListener(Runnable listener)
+    {
+        cancelListeners.remove(listener);
+    }
+
+    /**
+     * Calls the given supplier with this context as the current one, which is used when work of the command is done on
+     * other threads.
+     *
+     * @param supplier The supplier to call.
+     * @return Returns the result of the supplier.
+     */
+    public <T> T call(Supplier<T> supplier)
+    {
+        CommandContext previous = CURRENT.get();
+        CURRENT.set(this);
+        try
+        {
+            return supplier.get();
+        }
+        finally
+        {
+            if (previous == null)
+            {
+                CURRENT.remove();
+            }
+            else
+            {
+                CURRENT.set(previous);
+            }
+        }
+    }
+}
@@ -18,6 +18,9 @@ package com.antonjohansson.elasticsearchshell.connection;
 import static java.util.Objects.hash;
 import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.ToStringBuilder;
 
@@ -26,11 +29,58 @@ import org.apache.commons.lang3.builder.ToStringBuilder;
  */
 public class Connection
 {
+    /** The default number of responses to cache for a connection. */
+    public static final int DEFAULT_CACHE_SIZE = 256;
+
+    /** The default number of milliseconds to cache the names of the indices before refreshing them. */
+    public static final int DEFAULT_INDEX_NAMES_CACHE_TIME = 30000;
+
+    /** The default number of milliseconds to cache the information about the cluster. */
+    public static final int DEFAULT_CLUSTER_INFO_CACHE_TIME = 300000;
+
+    /** The default number of milliseconds to cache the health of the cluster. */
+    public static final int DEFAULT_CLUSTER_HEALTH_CACHE_TIME = 5000;
+
+    /** The default number of milliseconds to cache the mappings of indices. */
+    public static final int DEFAULT_MAPPINGS_CACHE_TIME = 30000;
+
+    /** The default strategy for choosing between the hosts of a connection. */
+    public static final String DEFAULT_LOAD_BALANCING = "round-robin";
+
+    /** The default number of milliseconds to wait for a connection to be established. */
+    public static final int DEFAULT_CONNECT_TIMEOUT = 5000;
+
+    /** The default number of milliseconds to wait for a response to be received. */
+    public static final int DEFAULT_READ_TIMEOUT = 30000;
+
+    /** The default number of milliseconds that the requests of a single command can take. */
+    public static final int DEFAULT_COMMAND_TIMEOUT = 30000;
+
+    /** The default format of large responses. */
+    public static final String DEFAULT_FORMAT = "json";
+
+    /** The default implementation of HTTP that requests are sent with. */
+    public static final String DEFAULT_TRANSPORT = "cxf";
+
     private String name = "";
     private String host = "";
     private int port;
     private String username = "";
     private String password = "";
+    private int cacheSize = DEFAULT_CACHE_SIZE;
+    private int indexNamesCacheTime = DEFAULT_INDEX_NAMES_CACHE_TIME;
+    private int clusterInfoCacheTime = DEFAULT_CLUSTER_INFO_CACHE_TIME;
+    private int clusterHealthCacheTime = DEFAULT_CLUSTER_HEALTH_CACHE_TIME;
+    private int mappingsCacheTime = DEFAULT_MAPPINGS_CACHE_TIME;
+    private String loadBalancing = DEFAULT_LOAD_BALANCING;
+    private boolean sniff;
+    private int connectTimeout = DEFAULT_CONNECT_TIMEOUT;
+    private int readTimeout = DEFAULT_READ_TIMEOUT;
+    private int commandTimeout = DEFAULT_COMMAND_TIMEOUT;
+    private boolean compressResponses = true;
+    private boolean compressRequests;
+    private String format = DEFAULT_FORMAT;
+    private String transport = DEFAULT_TRANSPORT;
 
     public String getName()
     {
@@ -42,6 +92,12 @@ public class Connection
         this.name = name;
     }
 
+    /**
+     * Gets the host of this connection. Multiple hosts can be given, separated by commas, optionally with their own
+     * ports (for example {@code node1,node2:9201}).
+     *
+     * @return Returns the host.
+     */
     public String getHost()
     {
         return host;
@@ -83,18 +139,263 @@ public class Connection
     }
 
     /**
-     * Gets the URL of this connection.
+     * Gets the maximum number of responses to cache for this connection, where zero disables caching.
+     *
+     * @return Returns the cache size.
+     */
+    public int getCacheSize()
+    {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize)
+    {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * Gets the number of milliseconds after which the names of the indices, which are used to complete commands, are
+     * refreshed in the background.
+     *
+     * @return Returns the cache time of the index names.
+     */
+    public int getIndexNamesCacheTime()
+    {
+        return indexNamesCacheTime;
+    }
+
+    public void setIndexNamesCacheTime(int indexNamesCacheTime)
+    {
+        this.indexNamesCacheTime = indexNamesCacheTime;
+    }
+
+    /**
+     * Gets the number of milliseconds that the information about the cluster is cached for, where zero disables
+     * caching it.
+     *
+     * @return Returns the cache time of the cluster information.
+     */
+    public int getClusterInfoCacheTime()
+    {
+        return clusterInfoCacheTime;
+    }
+
+    public void setClusterInfoCacheTime(int clusterInfoCacheTime)
+    {
+        this.clusterInfoCacheTime = clusterInfoCacheTime;
+    }
+
+    /**
+     * Gets the number of milliseconds that the health of the cluster is cached for, where zero disables caching it.
+     *
+     * @return Returns the cache time of the cluster health.
+     */
+    public int getClusterHealthCacheTime()
+    {
+        return clusterHealthCacheTime;
+    }
+
+    public void setClusterHealthCacheTime(int clusterHealthCacheTime)
+    {
+        this.clusterHealthCacheTime = clusterHealthCacheTime;
+    }
+
+    /**
+     * Gets the number of milliseconds that the mappings of indices are cached for, where zero disables caching them.
+     *
+     * @return Returns the cache time of the mappings.
+     */
+    public int getMappingsCacheTime()
+    {
+        return mappingsCacheTime;
+    }
+
+    public void setMappingsCacheTime(int mappingsCacheTime)
+    {
+        this.mappingsCacheTime = mappingsCacheTime;
+    }
+
+    /**
+     * Gets the strategy for choosing between the hosts of this connection, either {@code round-robin} or
+     * {@code least-latency}.
+     *
+     * @return Returns the load balancing strategy.
+     */
+    public String getLoadBalancing()
+    {
+        return loadBalancing;
+    }
+
+    public void setLoadBalancing(String loadBalancing)
+    {
+        this.loadBalancing = loadBalancing;
+    }
+
+    /**
+     * Gets whether or not the hosts of the cluster should be discovered from the nodes of it, instead of only using
+     * the configured hosts.
+     *
+     * @return Returns {@code true} if sniffing is enabled.
+     */
+    public boolean isSniff()
+    {
+        return sniff;
+    }
+
+    public void setSniff(boolean sniff)
+    {
+        this.sniff = sniff;
+    }
+
+    /**
+     * Gets the number of milliseconds to wait for a connection to a host to be established.
+     *
+     * @return Returns the connect timeout, where zero means no timeout.
+     */
+    public int getConnectTimeout()
+    {
+        return connectTimeout;
+    }
+
+    public void setConnectTimeout(int connectTimeout)
+    {
+        this.connectTimeout = connectTimeout;
+    }
+
+    /**
+     * Gets the number of milliseconds to wait for data of a response to be received.
+     *
+     * @return Returns the read timeout, where zero means no timeout.
+     */
+    public int getReadTimeout()
+    {
+        return readTimeout;
+    }
+
+    public void setReadTimeout(int readTimeout)
+    {
+        this.readTimeout = readTimeout;
+    }
+
+    /**
+     * Gets the number of milliseconds that all requests of a single command together can take, including retries.
+     *
+     * @return Returns the command timeout, where zero means no timeout.
+     */
+    public int getCommandTimeout()
+    {
+        return commandTimeout;
+    }
+
+    public void setCommandTimeout(int commandTimeout)
+    {
+        this.commandTimeout = commandTimeout;
+    }
+
+    /**
+     * Gets whether or not the server should be asked to compress responses using gzip.
+     *
+     * @return Returns {@code true} if compressed responses are accepted.
+     */
+    public boolean isCompressResponses()
+    {
+        return compressResponses;
+    }
+
+    public void setCompressResponses(boolean compressResponses)
+    {
+        this.compressResponses = compressResponses;
+    }
+
+    /**
+     * Gets whether or not large request bodies should be compressed using gzip. The server must have HTTP compression
+     * enabled to accept them.
+     *
+     * @return Returns {@code true} if request bodies are compressed.
+     */
+    public boolean isCompressRequests()
+    {
+        return compressRequests;
+    }
+
+    public void setCompressRequests(boolean compressRequests)
+    {
+        this.compressRequests = compressRequests;
+    }
+
+    /**
+     * Gets the format that large responses are requested in, which is one of {@code json}, {@code smile} or
+     * {@code cbor}. The binary formats are smaller and cheaper to parse.
+     *
+     * @return Returns the response format.
+     */
+    public String getFormat()
+    {
+        return format;
+    }
+
+    public void setFormat(String format)
+    {
+        this.format = format;
+    }
+
+    /**
+     * Gets the implementation of HTTP that requests are sent with, which is either {@code cxf} (Apache CXF) or
+     * {@code jdk} (the lighter {@link java.net.HttpURLConnection} of the JDK).
+     *
+     * @return Returns the transport.
+     */
+    public String getTransport()
+    {
+        return transport;
+    }
+
+    public void setTransport(String transport)
+    {
+        this.transport = transport;
+    }
+
+    /**
+     * Gets the URL of this connection. If the connection has multiple hosts, this is the URL of the first one.
      *
      * @return Returns the connection URL.
      */
     public String getURL()
     {
-        return new StringBuilder()
+        List<String> urls = getURLs();
+        return urls.isEmpty() ? getURL(host) : urls.get(0);
+    }
+
+    /**
+     * Gets the URLs of all hosts of this connection.
+     *
+     * @return Returns the connection URLs.
+     */
+    public List<String> getURLs()
+    {
+        List<String> urls = new ArrayList<>();
+        for (String hostAndPort : host.split(","))
+        {
+            if (!hostAndPort.trim().isEmpty())
+            {
+                urls.add(getURL(hostAndPort.trim()));
+            }
+        }
+        return urls;
+    }
+
+    private String getURL(String hostAndPort)
+    {
+        StringBuilder url = new StringBuilder()
                 .append("http://")
-                .append(host)
-                .append(":")
-                .append(port)
-                .toString();
+                .append(hostAndPort);
+
+        // Hosts without a port of their own use the port of the connection
+        if (hostAndPort.lastIndexOf(':') <= hostAndPort.lastIndexOf(']'))
+        {
+            url.append(":").append(port);
+        }
+        return url.toString();
     }
 
     @Override
@@ -122,6 +423,20 @@ public class Connection
                 .append(this.port, that.port)
                 .append(this.username, that.username)
                 .append(this.password, that.password)
+                .append(this.cacheSize, that.cacheSize)
+                .append(this.indexNamesCacheTime, that.indexNamesCacheTime)
+                .append(this.clusterInfoCacheTime, that.clusterInfoCacheTime)
+                .append(this.clusterHealthCacheTime, that.clusterHealthCacheTime)
+                .append(this.mappingsCacheTime, that.mappingsCacheTime)
+                .append(this.loadBalancing, that.loadBalancing)
+                .append(this.sniff, that.sniff)
+                .append(this.connectTimeout, that.connectTimeout)
+                .append(this.readTimeout, that.readTimeout)
+                .append(this.commandTimeout, that.commandTimeout)
+                .append(this.compressResponses, that.compressResponses)
+                .append(this.compressRequests, that.compressRequests)
+                .append(this.format, that.format)
+                .append(this.transport, that.transport)
                 .isEquals();
     }
 
@@ -134,6 +449,20 @@ public class Connection
                 .append("port", port)
                 .append("username", username)
                 .append("password", "*****")
+                .append("cacheSize", cacheSize)
+                .append("indexNamesCacheTime", indexNamesCacheTime)
+                .append("clusterInfoCacheTime", clusterInfoCacheTime)
+                .append("clusterHealthCacheTime", clusterHealthCacheTime)
+                .append("mappingsCacheTime", mappingsCacheTime)
+                .append("loadBalancing", loadBalancing)
+                .append("sniff", sniff)
+                .append("connectTimeout", connectTimeout)
+                .append("readTimeout", readTimeout)
+                .append("commandTimeout", commandTimeout)
+                .append("compressResponses", compressResponses)
+                .append("compressRequests", compressRequests)
+                .append("format", format)
+                .append("transport", transport)
                 .toString();
     }
 }
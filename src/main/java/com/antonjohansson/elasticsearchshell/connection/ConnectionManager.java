@@ -16,6 +16,7 @@
 package com.antonjohansson.elasticsearchshell.connection;
 
 import static com.antonjohansson.elasticsearchshell.utils.Constants.CONFIGURATION_FILE;
+import static org.apache.commons.lang3.BooleanUtils.toBoolean;
 import static org.apache.commons.lang3.math.NumberUtils.toInt;
 
 import java.io.File;
@@ -67,6 +68,20 @@ public class ConnectionManager
         connection.setPort(toInt(properties.getProperty("port")));
         connection.setUsername(properties.getProperty("username", ""));
         connection.setPassword(properties.getProperty("password", ""));
+        connection.setCacheSize(toInt(properties.getProperty("cacheSize"), Connection.DEFAULT_CACHE_SIZE));
+        connection.setIndexNamesCacheTime(toInt(properties.getProperty("indexNamesCacheTime"), Connection.DEFAULT_INDEX_NAMES_CACHE_TIME));
+        connection.setClusterInfoCacheTime(toInt(properties.getProperty("clusterInfoCacheTime"), Connection.DEFAULT_CLUSTER_INFO_CACHE_TIME));
+        connection.setClusterHealthCacheTime(toInt(properties.getProperty("clusterHealthCacheTime"), Connection.DEFAULT_CLUSTER_HEALTH_CACHE_TIME));
+        connection.setMappingsCacheTime(toInt(properties.getProperty("mappingsCacheTime"), Connection.DEFAULT_MAPPINGS_CACHE_TIME));
+        connection.setLoadBalancing(properties.getProperty("loadBalancing", Connection.DEFAULT_LOAD_BALANCING));
+        connection.setSniff(toBoolean(properties.getProperty("sniff")));
+        connection.setConnectTimeout(toInt(properties.getProperty("connectTimeout"), Connection.DEFAULT_CONNECT_TIMEOUT));
+        connection.setReadTimeout(toInt(properties.getProperty("readTimeout"), Connection.DEFAULT_READ_TIMEOUT));
+        connection.setCommandTimeout(toInt(properties.getProperty("commandTimeout"), Connection.DEFAULT_COMMAND_TIMEOUT));
+        connection.setCompressResponses(toBoolean(properties.getProperty("compressResponses", "true")));
+        connection.setCompressRequests(toBoolean(properties.getProperty("compressRequests")));
+        connection.setFormat(properties.getProperty("format", Connection.DEFAULT_FORMAT));
+        connection.setTransport(properties.getProperty("transport", Connection.DEFAULT_TRANSPORT));
         return connection;
     }
 
@@ -102,6 +117,20 @@ public class ConnectionManager
         properties.setProperty("port", String.valueOf(connection.getPort()));
         properties.setProperty("username", connection.getUsername());
         properties.setProperty("password", connection.getPassword());
+        properties.setProperty("cacheSize", String.valueOf(connection.getCacheSize()));
+        properties.setProperty("indexNamesCacheTime", String.valueOf(connection.getIndexNamesCacheTime()));
+        properties.setProperty("clusterInfoCacheTime", String.valueOf(connection.getClusterInfoCacheTime()));
+        properties.setProperty("clusterHealthCacheTime", String.valueOf(connection.getClusterHealthCacheTime()));
+        properties.setProperty("mappingsCacheTime", String.valueOf(connection.getMappingsCacheTime()));
+        properties.setProperty("loadBalancing", connection.getLoadBalancing());
+        properties.setProperty("sniff", String.valueOf(connection.isSniff()));
+        properties.setProperty("connectTimeout", String.valueOf(connection.getConnectTimeout()));
+        properties.setProperty("readTimeout", String.valueOf(connection.getReadTimeout()));
+        properties.setProperty("commandTimeout", String.valueOf(connection.getCommandTimeout()));
+        properties.setProperty("compressResponses", String.valueOf(connection.isCompressResponses()));
+        properties.setProperty("compressRequests", String.valueOf(connection.isCompressRequests()));
+        properties.setProperty("format", connection.getFormat());
+        properties.setProperty("transport", connection.getTransport());
 
         File file = new File(connectionsPath, connection.getName());
         PropertiesUtils.write(properties, file);
@@ -16,7 +16,6 @@
 package com.antonjohansson.elasticsearchshell.domain.node;
 
 import static java.util.Collections.emptyMap;
-import static java.util.Objects.requireNonNull;
 import static org.apache.commons.lang3.builder.ToStringBuilder.reflectionToString;
 import static org.apache.commons.lang3.builder.ToStringStyle.SHORT_PREFIX_STYLE;
 
@@ -25,7 +24,6 @@ import java.util.Map;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
 
-import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
 /**
@@ -56,23 +54,6 @@ public class NodesInfo
         this.nodes = nodes;
     }
 
-    /**
-     * Gets a {@link Node node} by its name.
-     *
-     * @param name The name of the node to get.
-     * @return Returns the node, if it was found.
-     * @throws ElasticsearchException Thrown if no node was found with the given {@code name}.
-     */
-    public Node getNodeByName(String name)
-    {
-        requireNonNull(name, "'name' cannot be null");
-        return nodes.values()
-                .stream()
-                .filter(node -> name.equals(node.getName()))
-                .findAny()
-                .orElseThrow(() -> new ElasticsearchException("No node with name '" + name + "' was found"));
-    }
-
     @Override
     public int hashCode()
     {
@@ -55,11 +55,8 @@ class IndexKeyConverter implements Converter<IndexKey>
     public boolean getAllPossibleValues(List<Completion> completions, Class<?> targetType, String existingData, String optionContext, MethodTarget target)
     {
         clientFactory.getClient()
-                .getMappings()
-                .keySet()
-                .stream()
-                .filter(name -> name.startsWith(existingData))
-                .sorted()
+                .getIndexCatalog()
+                .getNamesStartingWith(existingData)
                 .forEach(name ->
                 {
                     completions.add(new Completion(name));
@@ -16,6 +16,7 @@
 package com.antonjohansson.elasticsearchshell.session;
 
 import java.util.Map;
+import java.util.Optional;
 import java.util.TreeMap;
 
 import org.springframework.stereotype.Component;
@@ -95,6 +96,32 @@ public class SessionManager
         return sessions.keySet();
     }
 
+    /**
+     * Gets the session with the given name.
+     *
+     * @param key The key of the session to get.
+     * @return Returns the session, if it exists.
+     */
+    public Optional<Session> getSession(SessionKey key)
+    {
+        return Optional.ofNullable(sessions.get(key.getName()));
+    }
+
+    /**
+     * Checks whether any session is connected to the connection with the given name.
+     *
+     * @param connectionName The name of the connection.
+     * @return Returns {@code true} if any session is connected to the connection; otherwise, {@code false}.
+     */
+    public boolean isConnected(String connectionName)
+    {
+        return sessions.values()
+                .stream()
+                .anyMatch(session -> session.getOptionalConnection()
+                        .filter(connection -> connection.getName().equals(connectionName))
+                        .isPresent());
+    }
+
     /**
      * Removes the session with the given name, if it exists.
      *
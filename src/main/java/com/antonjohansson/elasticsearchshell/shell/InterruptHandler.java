@@ -0,0 +1,87 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.shell;
+
+import javax.annotation.PostConstruct;
+
+import org.springframework.stereotype.Component;
+
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
+
+import sun.misc.Signal;
+import sun.misc.SignalHandler;
+
+/**
+ * Handles Ctrl-C by cancelling the commands that are currently running. When no command is running, the signal is
+ * passed on to the previous handler, which exits the shell the same way as without this handler.
+ * <p>
+ * Neither JLine nor Spring Shell offers a hook for this: JLine only turns Ctrl-C into an interrupt while it reads the
+ * next command, and Spring Shell doesn't read the terminal at all while a command is running. The signal is therefore
+ * handled through the signal API of the JVM. The API is internal, so its use is marked with a suppression of the
+ * restriction warning. The warnings that javac prints about it can't be suppressed and are expected. On platforms
+ * without the signal, Ctrl-C keeps its default behavior.
+ */
+@Component
+@SuppressWarnings("restriction")
+class InterruptHandler
+{
+    private static final String INTERRUPT = "INT";
+
+    private SignalHandler previousHandler;
+
+    @PostConstruct
+    void install()
+    {
+        try
+        {
+            previousHandler = Signal.handle(new Signal(INTERRUPT), this::handle);
+        }
+        catch (IllegalArgumentException e)
+        {
+            // The signal is not supported on this platform, so Ctrl-C keeps its default behavior
+        }
+    }
+
+    /**
+     * Cancels the commands that are currently running.
+     *
+     * @return Returns whether any command was running.
+     */
+    boolean interrupt()
+    {
+        return CommandContext.cancelRunning();
+    }
+
+    private void handle(Signal signal)
+    {
+        if (interrupt() || previousHandler == null)
+        {
+            return;
+        }
+
+        try
+        {
+            previousHandler.handle(signal);
+        }
+        catch (UnsupportedOperationException e)
+        {
+            // The previous handler is the native default one, which cannot be invoked from Java, so it is restored
+            // and the signal is raised again
+            Signal.handle(signal, previousHandler);
+            Signal.raise(signal);
+        }
+    }
+}
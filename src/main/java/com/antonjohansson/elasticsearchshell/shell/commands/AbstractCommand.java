@@ -25,6 +25,7 @@ import org.springframework.context.ApplicationContext;
 import org.springframework.context.ApplicationContextAware;
 import org.springframework.shell.core.CommandMarker;
 
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
 import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.antonjohansson.elasticsearchshell.shell.PromptState;
 import com.antonjohansson.elasticsearchshell.shell.output.Console;
@@ -94,6 +95,8 @@ public abstract class AbstractCommand implements CommandMarker, ApplicationConte
      */
     protected void command(Command command, Runnable onError)
     {
+        // Requests made by the command are bounded by a deadline, counted from here
+        CommandContext context = CommandContext.begin();
         try
         {
             command.command();
@@ -105,5 +108,9 @@ public abstract class AbstractCommand implements CommandMarker, ApplicationConte
             promptState.setLastSuccess(false);
             Optional.ofNullable(onError).ifPresent(Runnable::run);
         }
+        finally
+        {
+            context.end();
+        }
     }
 }
@@ -79,7 +79,7 @@ public class ClusterCommands extends AbstractCommand
     {
         command(() ->
         {
-            ClusterHealth health = factory.getClient().getClusterHealth();
+            ClusterHealth health = factory.getClient().getCurrentClusterHealth();
             ConsoleColor colorOfStatus = Optional.ofNullable(STATUS_TO_COLOR_MAP.get(health.getStatus())).orElse(RED);
             String status = colorOfStatus.format(health.getStatus());
             console().writeLine("The cluster status is '%s' and it has %d nodes (where %d node(s) are data nodes)", status, health.getNumberOfNodes(), health.getNumberOfDataNodes());
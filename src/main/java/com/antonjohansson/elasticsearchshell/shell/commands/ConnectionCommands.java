@@ -16,8 +16,10 @@
 package com.antonjohansson.elasticsearchshell.shell.commands;
 
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.WHITE;
+import static com.antonjohansson.elasticsearchshell.utils.FutureUtils.join;
 
 import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
 
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.core.annotation.CliAvailabilityIndicator;
@@ -25,10 +27,13 @@ import org.springframework.shell.core.annotation.CliCommand;
 import org.springframework.shell.core.annotation.CliOption;
 import org.springframework.stereotype.Component;
 
+import com.antonjohansson.elasticsearchshell.client.Client;
 import com.antonjohansson.elasticsearchshell.client.ClientFactory;
+import com.antonjohansson.elasticsearchshell.client.ResponseCache;
 import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.connection.ConnectionKey;
 import com.antonjohansson.elasticsearchshell.connection.ConnectionManager;
+import com.antonjohansson.elasticsearchshell.domain.ClusterHealth;
 import com.antonjohansson.elasticsearchshell.domain.ClusterInfo;
 import com.antonjohansson.elasticsearchshell.index.IndexKey;
 import com.antonjohansson.elasticsearchshell.session.SessionManager;
@@ -78,8 +83,15 @@ public class ConnectionCommands extends AbstractCommand
             }
             sessionManager.getCurrentSession().setConnection(connection);
             sessionManager.getCurrentSession().setCurrentIndex(null);
-            ClusterInfo clusterInfo = clientFactory.getClient().getClusterInfo();
-            console().writeLine("Connected to cluster '%s' (version %s)", WHITE, clusterInfo.getClusterName(), clusterInfo.getVersion().getNumber());
+
+            Client client = clientFactory.getClient();
+            CompletableFuture<ClusterInfo> clusterInfo = client.getClusterInfoAsync();
+            CompletableFuture<ClusterHealth> clusterHealth = client.getClusterHealthAsync();
+            ClusterInfo info = join(clusterInfo);
+            ClusterHealth health = join(clusterHealth);
+            console().writeLine("Connected to cluster '%s' (version %s, status %s)", WHITE, info.getClusterName(), info.getVersion().getNumber(), health.getStatus());
+            client.prefetch();
+            Optional.ofNullable(previousConnection).ifPresent(clientFactory::evict);
         }, () ->
         {
             sessionManager.getCurrentSession().setConnection(previousConnection);
@@ -107,7 +119,7 @@ public class ConnectionCommands extends AbstractCommand
     }
 
     /** Indicates whether or not the current session is connected. */
-    @CliAvailabilityIndicator("disconnect")
+    @CliAvailabilityIndicator({"disconnect", "cache-stats"})
     public boolean isConnected()
     {
         return sessionManager.getCurrentSession().getOptionalConnection().isPresent();
@@ -122,7 +134,29 @@ public class ConnectionCommands extends AbstractCommand
             Connection connection = sessionManager.getCurrentSession().getOptionalConnection().get();
             sessionManager.getCurrentSession().setConnection(null);
             sessionManager.getCurrentSession().setCurrentIndex(null);
+            clientFactory.evict(connection);
             console().writeLine("Disconnected from '%s'", WHITE, connection.getURL());
         });
     }
+
+    /** Prints statistics about the response cache of the current connection. */
+    @CliCommand(value = "cache-stats", help = "Displays statistics about the response cache of the current connection")
+    public void cacheStats()
+    {
+        command(() ->
+        {
+            ResponseCache cache = clientFactory.getClient().getResponseCache();
+            if (cache.getMaximumSize() <= 0)
+            {
+                console().writeLine("The response cache is disabled for this connection", WHITE);
+                return;
+            }
+
+            console().writeLine("The response cache holds %d of at most %d responses", WHITE, cache.getSize(), cache.getMaximumSize());
+            cache.getStatistics().forEach((endpoint, statistics) ->
+            {
+                console().writeLine("  %s: %d hits, %d misses (%.1f%% hit ratio)", WHITE, endpoint, statistics.getHits(), statistics.getMisses(), statistics.getHitRatio() * 100);
+            });
+        });
+    }
 }
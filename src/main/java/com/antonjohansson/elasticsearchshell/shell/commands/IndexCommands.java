@@ -15,18 +15,27 @@
  */
 package com.antonjohansson.elasticsearchshell.shell.commands;
 
+import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.RED;
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.WHITE;
+import static com.antonjohansson.elasticsearchshell.utils.Constants.CONFIGURATION_FILE;
 
-import java.util.Optional;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.shell.core.annotation.CliAvailabilityIndicator;
 import org.springframework.shell.core.annotation.CliCommand;
 import org.springframework.shell.core.annotation.CliOption;
 import org.springframework.stereotype.Component;
 
-import com.antonjohansson.elasticsearchshell.client.Client;
+import com.antonjohansson.elasticsearchshell.client.BulkOptions;
+import com.antonjohansson.elasticsearchshell.client.BulkStatistics;
 import com.antonjohansson.elasticsearchshell.client.ClientFactory;
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.antonjohansson.elasticsearchshell.domain.Index;
 import com.antonjohansson.elasticsearchshell.domain.IndexMappings;
 import com.antonjohansson.elasticsearchshell.domain.IndexSettings;
@@ -41,8 +50,12 @@ import com.antonjohansson.elasticsearchshell.session.SessionManager;
 @Component
 public class IndexCommands extends AbstractCommand
 {
+    private static final int MEGABYTE = 1024 * 1024;
+    private static final int MAXIMUM_WORKERS = 256;
+
     private ClientFactory clientFactory;
     private SessionManager sessionManager;
+    private File configurationPath;
 
     @Autowired
     void setClientFactory(ClientFactory clientFactory)
@@ -56,13 +69,19 @@ public class IndexCommands extends AbstractCommand
         this.sessionManager = sessionManager;
     }
 
+    @Autowired
+    void setConfigurationPath(@Qualifier(CONFIGURATION_FILE) File configurationPath)
+    {
+        this.configurationPath = configurationPath;
+    }
+
     @CliAvailabilityIndicator({"use"})
     public boolean isConnected()
     {
         return sessionManager.getCurrentSession().getOptionalConnection().isPresent();
     }
 
-    @CliAvailabilityIndicator({"current-index", "delete-index"})
+    @CliAvailabilityIndicator({"current-index", "delete-index", "bulk-load"})
     public boolean isIndexChosen()
     {
         return sessionManager.getCurrentSession().getCurrentIndex() != null;
@@ -76,9 +95,8 @@ public class IndexCommands extends AbstractCommand
     {
         command(() ->
         {
-            IndexMappings indexMappings = Optional.of(clientFactory.getClient())
-                    .map(Client::getMappings)
-                    .map(mappings -> mappings.get(key.getName()))
+            IndexMappings indexMappings = clientFactory.getClient()
+                    .getMappings(key.getName())
                     .orElseThrow(() -> new CommandException("No index named '%s' was found", key));
 
             console().writeLine("Now using '%s'. Index has %d types.", WHITE, key, indexMappings.getMappings().size());
@@ -157,6 +175,97 @@ public class IndexCommands extends AbstractCommand
         });
     }
 
+    /**
+     * Loads a file into the current index through the bulk API.
+     *
+     * @param fileName The name of the file to load.
+     * @param workers The number of bulk requests to send concurrently.
+     * @param batchSize The maximum number of actions in a bulk request.
+     * @param batchMegabytes The maximum size of a bulk request, in megabytes.
+     * @param adaptive Whether to adapt the batch size and the number of concurrent requests to the cluster.
+     * @param targetLatency The number of milliseconds that bulk requests should take at most, when adaptive.
+     */
+    @CliCommand(value = "bulk-load", help = "Loads a file of newline-delimited JSON, in the format of the bulk API, into the current index")
+    public void bulkLoad(
+            @CliOption(key = {"", "file"}, mandatory = true, help = "The file to load") String fileName,
+            @CliOption(key = "workers", unspecifiedDefaultValue = "" + BulkOptions.DEFAULT_WORKERS, help = "The number of bulk requests to send concurrently") int workers,
+            @CliOption(key = "batch-size", unspecifiedDefaultValue = "" + BulkOptions.DEFAULT_BATCH_SIZE, help = "The maximum number of actions in a bulk request") int batchSize,
+            @CliOption(key = "batch-megabytes", unspecifiedDefaultValue = "" + BulkOptions.DEFAULT_BATCH_BYTES / MEGABYTE, help = "The maximum size of a bulk request, in megabytes") int batchMegabytes,
+            @CliOption(key = "adaptive", unspecifiedDefaultValue = "false", specifiedDefaultValue = "true", help = "Whether to grow the batch size and the number of workers, up to their maximums, while the cluster keeps up") boolean adaptive,
+            @CliOption(key = "target-latency", unspecifiedDefaultValue = "" + BulkOptions.DEFAULT_TARGET_LATENCY, help = "The number of milliseconds that adaptive bulk requests should take at most") int targetLatency,
+            @CliOption(key = "dead-letter-file", help = "The file to write failed actions to, along with the reason that they failed, defaults to the file to load followed by '.failed'") String deadLetterFileName,
+            @CliOption(key = "resume", unspecifiedDefaultValue = "false", specifiedDefaultValue = "true", help = "Whether to resume an interrupted load of the same file from its last checkpoint") boolean resume)
+    {
+        command(() ->
+        {
+            checkRange("workers", workers, 1, MAXIMUM_WORKERS);
+            checkRange("batch-size", batchSize, 1, Integer.MAX_VALUE);
+            checkRange("batch-megabytes", batchMegabytes, 1, Integer.MAX_VALUE / MEGABYTE);
+            checkRange("target-latency", targetLatency, 1, Integer.MAX_VALUE);
+
+            Path file = Paths.get(fileName);
+            if (!Files.isReadable(file))
+            {
+                throw new CommandException("Could not read file '%s'", fileName);
+            }
+
+            BulkOptions options = new BulkOptions();
+            options.setWorkers(workers);
+            options.setBatchSize(batchSize);
+            options.setBatchBytes(batchMegabytes * MEGABYTE);
+            options.setAdaptive(adaptive);
+            options.setTargetLatency(targetLatency);
+            options.setDeadLetterFile(Paths.get(deadLetterFileName != null ? deadLetterFileName : fileName + ".failed"));
+
+            String indexName = sessionManager.getCurrentSession().getCurrentIndex().getName();
+            options.setCheckpointFile(getCheckpointFile(indexName, file));
+            options.setResume(resume);
+            BulkStatistics statistics;
+            try
+            {
+                statistics = clientFactory.getClient().bulkLoad(indexName, file, options, this::writeProgress);
+            }
+            catch (IOException e)
+            {
+                throw new CommandException("Could not load file '%s': %s", fileName, e.getMessage());
+            }
+            catch (ElasticsearchException e)
+            {
+                throw new CommandException("%s, the load can be resumed with --resume", e.getMessage());
+            }
+
+            console().writeLine("Loaded %,d documents (%.1f MB) into '%s' in %.1f s, %,.0f documents/s, %.1f MB/s", WHITE, statistics.getDocuments(), statistics.getMegabytes(), indexName, statistics.getElapsedMillis() / 1000.0, statistics.getDocumentsPerSecond(), statistics.getMegabytesPerSecond());
+            if (statistics.getFailures() > 0)
+            {
+                console().writeLine("%,d actions failed, see '%s'", RED, statistics.getFailures(), options.getDeadLetterFile());
+            }
+        });
+    }
+
+    private static void checkRange(String option, int value, int minimum, int maximum) throws CommandException
+    {
+        if (value < minimum || value > maximum)
+        {
+            throw new CommandException("--%s must be between %d and %d", option, minimum, maximum);
+        }
+    }
+
+    /**
+     * Gets the checkpoint of loading the given file into the given index, which is named after both, so that loads
+     * of files with the same name from different directories don't share checkpoints.
+     */
+    private Path getCheckpointFile(String indexName, Path file)
+    {
+        Path absolutePath = file.toAbsolutePath().normalize();
+        String name = String.format("%s-%s-%08x", indexName, absolutePath.getFileName(), absolutePath.toString().hashCode());
+        return new File(new File(configurationPath, "checkpoints"), name).toPath();
+    }
+
+    private void writeProgress(BulkStatistics progress)
+    {
+        console().writeLine("Loaded %,d documents (%.1f MB), %,.0f documents/s, %.1f MB/s, %d workers sending batches of %d", progress.getDocuments(), progress.getMegabytes(), progress.getDocumentsPerSecond(), progress.getMegabytesPerSecond(), progress.getWorkers(), progress.getBatchSize());
+    }
+
     /**
      * Shows the current index.
      */
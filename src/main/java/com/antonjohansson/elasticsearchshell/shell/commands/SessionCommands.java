@@ -19,11 +19,16 @@ import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.GR
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.WHITE;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 
+import java.util.Optional;
+
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.shell.core.annotation.CliCommand;
 import org.springframework.shell.core.annotation.CliOption;
 import org.springframework.stereotype.Component;
 
+import com.antonjohansson.elasticsearchshell.client.ClientFactory;
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+import com.antonjohansson.elasticsearchshell.session.Session;
 import com.antonjohansson.elasticsearchshell.session.SessionKey;
 import com.antonjohansson.elasticsearchshell.session.SessionManager;
 
@@ -34,6 +39,7 @@ import com.antonjohansson.elasticsearchshell.session.SessionManager;
 class SessionCommands extends AbstractCommand
 {
     private SessionManager manager;
+    private ClientFactory clientFactory;
 
     @Autowired
     void setManager(SessionManager manager)
@@ -41,6 +47,12 @@ class SessionCommands extends AbstractCommand
         this.manager = manager;
     }
 
+    @Autowired
+    void setClientFactory(ClientFactory clientFactory)
+    {
+        this.clientFactory = clientFactory;
+    }
+
     @CliCommand(value = "session-add", help = "Adds a new session and switches to it")
     public void add(@CliOption(key = {"", "name"}, help = "The name of the session to add") String name)
     {
@@ -73,10 +85,12 @@ class SessionCommands extends AbstractCommand
                 throw new CommandException("You can't remove the session you are currently working with");
             }
 
+            Optional<Connection> connection = manager.getSession(key).flatMap(Session::getOptionalConnection);
             if (!manager.remove(key))
             {
                 throw new CommandException("Session '%s' does not exist", key);
             }
+            connection.ifPresent(clientFactory::evict);
 
             console().writeLine("Removed session '%s'", WHITE, key);
         });
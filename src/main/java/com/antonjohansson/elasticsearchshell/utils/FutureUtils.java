@@ -0,0 +1,55 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.utils;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Provides utilities to work with {@link CompletableFuture futures}.
+ */
+public final class FutureUtils
+{
+    // Prevent instantiation
+    private FutureUtils()
+    {
+    }
+
+    /**
+     * Waits for the given future to complete and returns its result.
+     * <p>
+     * Unlike {@link CompletableFuture#join()}, runtime exceptions thrown by the asynchronous task are re-thrown as they
+     * are, instead of being wrapped in a {@link CompletionException}.
+     *
+     * @param future The future to wait for.
+     * @return Returns the result of the future.
+     */
+    public static <T> T join(CompletableFuture<T> future)
+    {
+        try
+        {
+            return future.join();
+        }
+        catch (CompletionException e)
+        {
+            if (e.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+}
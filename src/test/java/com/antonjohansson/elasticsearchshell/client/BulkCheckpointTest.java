@@ -0,0 +1,106 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BulkCheckpoint}.
+ */
+public class BulkCheckpointTest extends Assert
+{
+    private static final File DIRECTORY = new File("target/bulk");
+
+    private Path file;
+    private Path path;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        forceMkdir(DIRECTORY);
+        file = new File(DIRECTORY, "checkpointed.ndjson").toPath();
+        Files.write(file, "{\"index\":{}}\n{}\n{\"index\":{}}\n{}\n".getBytes(UTF_8));
+        path = new File(DIRECTORY, "checkpoints/checkpointed").toPath();
+        Files.deleteIfExists(path);
+    }
+
+    @Test
+    public void test_write_and_read() throws IOException
+    {
+        new BulkCheckpoint(path, file, "test-index").write(16, 120);
+        BulkCheckpoint checkpoint = new BulkCheckpoint(path, file, "test-index");
+        assertEquals(16, checkpoint.read());
+        assertEquals(120, checkpoint.getDeadLetters());
+
+        new BulkCheckpoint(path, file, "test-index").delete();
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void test_read_missing_checkpoint()
+    {
+        try
+        {
+            new BulkCheckpoint(path, file, "test-index").read();
+            fail("Expected an exception");
+        }
+        catch (IOException e)
+        {
+            assertEquals("No checkpoint was found for '" + file.toAbsolutePath().normalize() + "'", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_read_checkpoint_of_another_index() throws IOException
+    {
+        new BulkCheckpoint(path, file, "test-index").write(16, 0);
+        try
+        {
+            new BulkCheckpoint(path, file, "other-index").read();
+            fail("Expected an exception");
+        }
+        catch (IOException e)
+        {
+            assertEquals("The checkpoint '" + path + "' belongs to another load", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_read_checkpoint_of_changed_file() throws IOException
+    {
+        new BulkCheckpoint(path, file, "test-index").write(16, 0);
+        Files.write(file, "{\"index\":{}}\n{}\n".getBytes(UTF_8));
+        try
+        {
+            new BulkCheckpoint(path, file, "test-index").read();
+            fail("Expected an exception");
+        }
+        catch (IOException e)
+        {
+            assertEquals("'" + file.toAbsolutePath().normalize() + "' has changed since the checkpoint was written", e.getMessage());
+        }
+    }
+}
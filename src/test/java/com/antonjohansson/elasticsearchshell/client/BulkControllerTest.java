@@ -0,0 +1,120 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link BulkController}.
+ */
+public class BulkControllerTest extends Assert
+{
+    private static final long FAST = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long SLOW = TimeUnit.MILLISECONDS.toNanos(1500);
+
+    private BulkController controller(boolean adaptive)
+    {
+        BulkOptions options = new BulkOptions();
+        options.setWorkers(4);
+        options.setBatchSize(1000);
+        options.setAdaptive(adaptive);
+        options.setTargetLatency(1000);
+        return new BulkController(options);
+    }
+
+    @Test
+    public void test_fixed()
+    {
+        BulkController controller = controller(false);
+        assertEquals(1000, controller.getBatchSize());
+        assertEquals(4, controller.getConcurrency());
+
+        controller.onResponse(0, SLOW, true);
+        assertEquals(1000, controller.getBatchSize());
+        assertEquals(4, controller.getConcurrency());
+    }
+
+    @Test
+    public void test_additive_increase()
+    {
+        BulkController controller = controller(true);
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+
+        controller.onResponse(0, FAST, false);
+        assertEquals(200, controller.getBatchSize());
+        assertEquals(2, controller.getConcurrency());
+
+        controller.onResponse(0, FAST, false);
+        assertEquals(300, controller.getBatchSize());
+        assertEquals(2, controller.getConcurrency());
+
+        controller.onResponse(0, FAST, false);
+        assertEquals(400, controller.getBatchSize());
+        assertEquals(3, controller.getConcurrency());
+
+        for (int i = 0; i < 20; i++)
+        {
+            controller.onResponse(0, FAST, false);
+        }
+        assertEquals(1000, controller.getBatchSize());
+        assertEquals(4, controller.getConcurrency());
+    }
+
+    @Test
+    public void test_multiplicative_decrease_on_rejections()
+    {
+        BulkController controller = controller(true);
+        for (int i = 0; i < 20; i++)
+        {
+            controller.onResponse(0, FAST, false);
+        }
+
+        controller.onResponse(0, FAST, true);
+        assertEquals(500, controller.getBatchSize());
+        assertEquals(2, controller.getConcurrency());
+        assertEquals(1, controller.getGeneration());
+
+        // Requests that were sent before the decrease don't decrease the load again
+        controller.onResponse(0, FAST, true);
+        assertEquals(500, controller.getBatchSize());
+        assertEquals(2, controller.getConcurrency());
+
+        controller.onResponse(1, FAST, true);
+        assertEquals(250, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+        assertEquals(2, controller.getGeneration());
+    }
+
+    @Test
+    public void test_multiplicative_decrease_on_latency()
+    {
+        BulkController controller = controller(true);
+        controller.onResponse(0, FAST, false);
+        controller.onResponse(0, FAST, false);
+
+        controller.onResponse(0, SLOW, false);
+        assertEquals(150, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+
+        controller.onResponse(1, SLOW, false);
+        assertEquals(100, controller.getBatchSize());
+        assertEquals(1, controller.getConcurrency());
+    }
+}
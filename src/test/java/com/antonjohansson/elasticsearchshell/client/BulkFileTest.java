@@ -0,0 +1,175 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.client.BulkFile.Batch;
+
+/**
+ * Unit tests of {@link BulkFile}.
+ */
+public class BulkFileTest extends Assert
+{
+    private static final File DIRECTORY = new File("target/bulk");
+    private static final String CONTENT = ""
+            + "{\"index\":{\"_id\":\"1\"}}\n"
+            + "{\"name\":\"first\"}\n"
+            + "\n"
+            + "{ \"delete\" : {\"_id\":\"2\"}}\r\n"
+            + "{\"create\":{\"_id\":\"3\"}}\n"
+            + "{\"name\":\"third\"}\n"
+            + "{\"update\":{\"_id\":\"1\"}}\n"
+            + "{\"doc\":{\"delete\":true}}";
+
+    @Before
+    public void setUp() throws IOException
+    {
+        forceMkdir(DIRECTORY);
+    }
+
+    private Path file(String content) throws IOException
+    {
+        Path file = new File(DIRECTORY, "file.ndjson").toPath();
+        Files.write(file, content.getBytes(UTF_8));
+        return file;
+    }
+
+    private String body(Batch batch)
+    {
+        return body(batch.getBody());
+    }
+
+    private String body(ByteBuffer buffer)
+    {
+        ByteBuffer body = buffer.duplicate();
+        byte[] bytes = new byte[body.remaining()];
+        body.get(bytes);
+        return new String(bytes, UTF_8);
+    }
+
+    @Test
+    public void test_batches_by_actions() throws IOException
+    {
+        try (BulkFile file = BulkFile.open(file(CONTENT)))
+        {
+            Batch batch = file.next(2, Integer.MAX_VALUE);
+            assertEquals(2, batch.getActions());
+            assertFalse(batch.getBody().hasArray());
+            assertEquals("{\"index\":{\"_id\":\"1\"}}\n{\"name\":\"first\"}\n\n{ \"delete\" : {\"_id\":\"2\"}}\r\n", body(batch));
+            assertEquals(CONTENT.indexOf("{\"create\""), batch.getEndOffset());
+
+            batch = file.next(2, Integer.MAX_VALUE);
+            assertEquals(2, batch.getActions());
+            assertEquals("{\"create\":{\"_id\":\"3\"}}\n{\"name\":\"third\"}\n{\"update\":{\"_id\":\"1\"}}\n{\"doc\":{\"delete\":true}}\n", body(batch));
+            assertEquals(CONTENT.length(), batch.getEndOffset());
+
+            assertNull(file.next(2, Integer.MAX_VALUE));
+        }
+    }
+
+    @Test
+    public void test_batches_by_bytes() throws IOException
+    {
+        try (BulkFile file = BulkFile.open(file(CONTENT)))
+        {
+            assertEquals(1, file.next(Integer.MAX_VALUE, 1).getActions());
+            assertEquals(2, file.next(Integer.MAX_VALUE, 50).getActions());
+            assertEquals(1, file.next(Integer.MAX_VALUE, 50).getActions());
+            assertNull(file.next(Integer.MAX_VALUE, 50));
+        }
+    }
+
+    @Test
+    public void test_batches_across_windows() throws IOException
+    {
+        StringBuilder content = new StringBuilder();
+        for (int i = 0; i < 1000; i++)
+        {
+            content.append("{\"index\":{\"_id\":\"").append(i).append("\"}}\n{\"number\":").append(i).append("}\n");
+        }
+
+        try (BulkFile file = BulkFile.open(file(content.toString()), 100))
+        {
+            StringBuilder read = new StringBuilder();
+            int actions = 0;
+            for (Batch batch = file.next(7, Integer.MAX_VALUE); batch != null; batch = file.next(7, Integer.MAX_VALUE))
+            {
+                read.append(body(batch));
+                actions += batch.getActions();
+                assertEquals(read.length(), batch.getEndOffset());
+            }
+            assertEquals(1000, actions);
+            assertEquals(content.toString(), read.toString());
+        }
+    }
+
+    @Test
+    public void test_large_documents() throws IOException
+    {
+        StringBuilder document = new StringBuilder("{\"text\":\"");
+        for (int i = 0; i < 100_000; i++)
+        {
+            document.append(i % 10);
+        }
+        document.append("\"}");
+
+        try (BulkFile file = BulkFile.open(file("{\"index\":{}}\n" + document + "\n{\"index\":{}}\n{}\n"), 1024))
+        {
+            assertEquals("{\"index\":{}}\n" + document + "\n", body(file.next(1, Integer.MAX_VALUE)));
+            assertEquals("{\"index\":{}}\n{}\n", body(file.next(1, Integer.MAX_VALUE)));
+        }
+    }
+
+    @Test
+    public void test_select_actions() throws IOException
+    {
+        try (BulkFile file = BulkFile.open(file(CONTENT)))
+        {
+            Batch batch = file.next(Integer.MAX_VALUE, Integer.MAX_VALUE);
+            assertEquals(4, batch.getActions());
+            assertEquals("{ \"delete\" : {\"_id\":\"2\"}}\r\n", body(batch.getAction(1)));
+            assertEquals("{\"update\":{\"_id\":\"1\"}}\n{\"doc\":{\"delete\":true}}\n", body(batch.getAction(3)));
+
+            Batch selected = batch.select(asList(0, 2));
+            assertEquals(2, selected.getActions());
+            assertEquals(CONTENT.length(), selected.getEndOffset());
+            assertEquals("{\"index\":{\"_id\":\"1\"}}\n{\"name\":\"first\"}\n\n{\"create\":{\"_id\":\"3\"}}\n{\"name\":\"third\"}\n", body(selected));
+            assertEquals("{\"create\":{\"_id\":\"3\"}}\n{\"name\":\"third\"}\n", body(selected.getAction(1)));
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void test_action_without_document() throws IOException
+    {
+        try (BulkFile file = BulkFile.open(file("{\"index\":{}}\n{}\n{\"index\":{}}\n\n")))
+        {
+            file.next(Integer.MAX_VALUE, Integer.MAX_VALUE);
+        }
+    }
+}
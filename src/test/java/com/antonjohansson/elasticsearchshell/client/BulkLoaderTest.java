@@ -0,0 +1,414 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.spy;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+
+/**
+ * Unit tests of {@link BulkLoader}.
+ */
+public class BulkLoaderTest extends Assert
+{
+    private static final File DIRECTORY = new File("target/bulk");
+    private static final int DOCUMENTS = 10_000;
+
+    private final List<BulkStatistics> progress = new ArrayList<>();
+    private Path file;
+    private FakeElasticsearch server;
+    private Client client;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        forceMkdir(DIRECTORY);
+        file = new File(DIRECTORY, "documents.ndjson").toPath();
+        try (Writer writer = Files.newBufferedWriter(file, UTF_8))
+        {
+            for (int i = 0; i < DOCUMENTS; i++)
+            {
+                writer.write("{\"index\":{\"_id\":\"" + i + "\"}}\n{\"number\":" + i + "}\n");
+            }
+        }
+    }
+
+    @After
+    public void tearDown()
+    {
+        client.close();
+        server.close();
+    }
+
+    private void start(FakeElasticsearch.Builder builder) throws IOException
+    {
+        start(builder, "jdk");
+    }
+
+    private void start(FakeElasticsearch.Builder builder, String transport) throws IOException
+    {
+        server = builder.start();
+        Connection connection = server.connection();
+        connection.setTransport(transport);
+        client = new Client(connection, new PasswordEncrypter());
+    }
+
+    private BulkOptions options(int workers, int batchSize)
+    {
+        BulkOptions options = new BulkOptions();
+        options.setWorkers(workers);
+        options.setBatchSize(batchSize);
+        return options;
+    }
+
+    @Test
+    public void test_load() throws IOException
+    {
+        start(FakeElasticsearch.builder().latency(1, 5));
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options(4, 100), progress::add);
+
+        assertEquals(DOCUMENTS, statistics.getDocuments());
+        assertEquals(0, statistics.getFailures());
+        assertEquals(Files.size(file), statistics.getBytes());
+        assertEquals(DOCUMENTS, server.getDocumentCount("bulk-index"));
+        assertEquals("{\"number\":9999}", server.getDocument("bulk-index", "9999").toString());
+        assertEquals(DOCUMENTS / 100, server.getRequestCount("/bulk-index/_bulk"));
+    }
+
+    @Test
+    public void test_load_with_cxf() throws IOException
+    {
+        start(FakeElasticsearch.builder(), "cxf");
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options(2, 1000), progress::add);
+
+        assertEquals(DOCUMENTS, statistics.getDocuments());
+        assertEquals(DOCUMENTS, server.getDocumentCount("bulk-index"));
+    }
+
+    @Test
+    public void test_load_with_blank_lines_at_the_end() throws IOException
+    {
+        start(FakeElasticsearch.builder());
+        Files.write(file, "\n\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options(2, 1000), progress::add);
+
+        assertEquals(DOCUMENTS, statistics.getDocuments());
+    }
+
+    @Test
+    public void test_load_reports_progress() throws IOException
+    {
+        start(FakeElasticsearch.builder().latency(600));
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options(2, 2000), progress::add);
+
+        assertEquals(DOCUMENTS, statistics.getDocuments());
+        assertFalse(progress.isEmpty());
+        assertTrue(progress.get(0).getDocuments() < DOCUMENTS);
+    }
+
+    @Test
+    public void test_load_with_rejected_actions() throws IOException
+    {
+        start(FakeElasticsearch.builder().bulkRejections(0.2));
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options(2, 1000), progress::add);
+
+        assertEquals(DOCUMENTS, statistics.getDocuments());
+        assertEquals(0, statistics.getFailures());
+        assertEquals(Files.size(file), statistics.getBytes());
+        assertEquals(DOCUMENTS, server.getDocumentCount("bulk-index"));
+        assertTrue(server.getRequestCount("/bulk-index/_bulk") > DOCUMENTS / 1000);
+    }
+
+    @Test
+    public void test_load_with_failed_actions() throws IOException
+    {
+        start(FakeElasticsearch.builder());
+        Files.write(file, "{\"create\":{\"_id\":\"1\"}}\r\n{\"number\":-1}\r\n\n{\"delete\":{\"_id\":\"2\"}}\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        Path deadLetterFile = new File(DIRECTORY, "documents.failed.ndjson").toPath();
+        Files.deleteIfExists(deadLetterFile);
+        BulkOptions options = options(1, 1000);
+        options.setDeadLetterFile(deadLetterFile);
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options, progress::add);
+
+        assertEquals(DOCUMENTS + 1, statistics.getDocuments());
+        assertEquals(1, statistics.getFailures());
+        assertEquals("{\"number\":1}", server.getDocument("bulk-index", "1").toString());
+        assertNull(server.getDocument("bulk-index", "2"));
+        assertEquals(
+                asList("{\"error\":\"[doc][1]: version conflict, document already exists\",\"action\":{\"create\":{\"_id\":\"1\"}},\"source\":{\"number\":-1}}"),
+                Files.readAllLines(deadLetterFile, UTF_8));
+    }
+
+    @Test
+    public void test_load_adaptive_with_rejected_requests() throws IOException
+    {
+        start(FakeElasticsearch.builder().errors(0.3, 429));
+        BulkOptions options = options(8, 1000);
+        options.setAdaptive(true);
+
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options, progress::add);
+
+        assertEquals(DOCUMENTS, statistics.getDocuments());
+        assertEquals(DOCUMENTS, server.getDocumentCount("bulk-index"));
+        assertTrue(server.getRequestCount("/bulk-index/_bulk") > DOCUMENTS / 1000);
+    }
+
+    @Test
+    public void test_load_resumes_from_checkpoint() throws IOException
+    {
+        Path checkpointFile = new File(DIRECTORY, "documents.checkpoint").toPath();
+        Files.deleteIfExists(checkpointFile);
+        BulkOptions options = options(2, 100);
+        options.setCheckpointFile(checkpointFile);
+
+        start(FakeElasticsearch.builder().errors(1.0, 500));
+        try
+        {
+            client.bulkLoad("bulk-index", file, options, progress::add);
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertTrue(Files.exists(checkpointFile));
+        }
+        tearDown();
+
+        long half = 0;
+        for (int i = 0; i < DOCUMENTS / 2; i++)
+        {
+            half += ("{\"index\":{\"_id\":\"" + i + "\"}}\n{\"number\":" + i + "}\n").length();
+        }
+        new BulkCheckpoint(checkpointFile, file, "bulk-index").write(half, 0);
+        options.setResume(true);
+
+        start(FakeElasticsearch.builder());
+        BulkStatistics statistics = client.bulkLoad("bulk-index", file, options, progress::add);
+
+        assertEquals(DOCUMENTS / 2, statistics.getDocuments());
+        assertEquals(DOCUMENTS / 2, server.getDocumentCount("bulk-index"));
+        assertNull(server.getDocument("bulk-index", "4999"));
+        assertEquals("{\"number\":5000}", server.getDocument("bulk-index", "5000").toString());
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test
+    public void test_load_discards_dead_letters_of_earlier_load() throws IOException
+    {
+        Path deadLetterFile = new File(DIRECTORY, "documents.failed.ndjson").toPath();
+        Files.write(deadLetterFile, "{\"error\":\"old\",\"action\":{\"delete\":{}}}\n".getBytes(UTF_8));
+        BulkOptions options = options(2, 1000);
+        options.setDeadLetterFile(deadLetterFile);
+
+        start(FakeElasticsearch.builder());
+        client.bulkLoad("bulk-index", file, options, progress::add);
+
+        assertFalse(Files.exists(deadLetterFile));
+    }
+
+    @Test
+    public void test_load_resumes_dead_letters_from_checkpoint() throws IOException
+    {
+        Path deadLetterFile = new File(DIRECTORY, "documents.failed.ndjson").toPath();
+        Path checkpointFile = new File(DIRECTORY, "documents.checkpoint").toPath();
+        byte[] checkpointed = "{\"error\":\"checkpointed\",\"action\":{\"delete\":{}}}\n".getBytes(UTF_8);
+        Files.write(deadLetterFile, checkpointed);
+        Files.write(deadLetterFile, "{\"error\":\"sent again\",\"action\":{\"delete\":{}}}\n".getBytes(UTF_8), StandardOpenOption.APPEND);
+        new BulkCheckpoint(checkpointFile, file, "bulk-index").write(0, checkpointed.length);
+        BulkOptions options = options(2, 1000);
+        options.setDeadLetterFile(deadLetterFile);
+        options.setCheckpointFile(checkpointFile);
+        options.setResume(true);
+
+        start(FakeElasticsearch.builder());
+        client.bulkLoad("bulk-index", file, options, progress::add);
+
+        // The failures after the checkpoint belong to batches that are sent again, so they are not kept
+        assertEquals(asList("{\"error\":\"checkpointed\",\"action\":{\"delete\":{}}}"), Files.readAllLines(deadLetterFile, UTF_8));
+        assertFalse(Files.exists(checkpointFile));
+    }
+
+    @Test
+    public void test_load_syncs_dead_letters_before_checkpoints() throws IOException
+    {
+        byte[] documents = Files.readAllBytes(file);
+        Files.write(file, "{\"update\":{\"_id\":\"missing\"}}\n{\"doc\":{}}\n".getBytes(UTF_8));
+        Files.write(file, documents, StandardOpenOption.APPEND);
+        Path deadLetterFile = new File(DIRECTORY, "documents.failed.ndjson").toPath();
+        Path checkpointFile = new File(DIRECTORY, "documents.checkpoint").toPath();
+        Files.deleteIfExists(deadLetterFile);
+        Files.deleteIfExists(checkpointFile);
+        BulkOptions options = options(2, 1000);
+        options.setDeadLetterFile(deadLetterFile);
+        options.setCheckpointFile(checkpointFile);
+
+        // The listener looks at the files while the load is running, as they would be if the process was killed
+        List<String> deadLettersAtCheckpoint = new ArrayList<>();
+        start(FakeElasticsearch.builder().latency(600));
+        client.bulkLoad("bulk-index", file, options, statistics ->
+        {
+            try
+            {
+                if (deadLettersAtCheckpoint.isEmpty() && Files.exists(checkpointFile) && new BulkCheckpoint(checkpointFile, file, "bulk-index").read() > 0)
+                {
+                    deadLettersAtCheckpoint.addAll(Files.readAllLines(deadLetterFile, UTF_8));
+                }
+            }
+            catch (IOException e)
+            {
+                throw new RuntimeException(e);
+            }
+        });
+
+        assertEquals(asList("{\"error\":\"[doc][missing]: document missing\",\"action\":{\"update\":{\"_id\":\"missing\"}},\"source\":{\"doc\":{}}}"), deadLettersAtCheckpoint);
+    }
+
+    @Test
+    public void test_load_keeps_failure_when_checkpoint_fails() throws IOException
+    {
+        Path notDirectory = new File(DIRECTORY, "not-a-directory").toPath();
+        Files.write(notDirectory, new byte[0]);
+        BulkOptions options = options(2, 100);
+        options.setCheckpointFile(notDirectory.resolve("documents.checkpoint"));
+        start(FakeElasticsearch.builder().errors(1.0, 500));
+
+        try
+        {
+            client.bulkLoad("bulk-index", file, options, progress::add);
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("Unknown error received from the server", e.getMessage());
+            assertEquals(1, e.getSuppressed().length);
+            assertTrue(e.getSuppressed()[0] instanceof IOException);
+        }
+    }
+
+    @Test
+    public void test_load_stops_when_cancelled() throws IOException
+    {
+        start(FakeElasticsearch.builder().latency(10_000));
+        CommandContext context = CommandContext.begin();
+        ScheduledExecutorService canceller = Executors.newSingleThreadScheduledExecutor();
+        canceller.schedule(context::cancel, 200, TimeUnit.MILLISECONDS);
+
+        long start = System.currentTimeMillis();
+        try
+        {
+            client.bulkLoad("bulk-index", file, options(2, 100), progress::add);
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("The command was cancelled", e.getMessage());
+            assertTrue(System.currentTimeMillis() - start < 5000);
+        }
+        finally
+        {
+            context.end();
+            canceller.shutdown();
+        }
+    }
+
+    @Test
+    public void test_load_stops_on_errors_of_workers() throws IOException
+    {
+        start(FakeElasticsearch.builder());
+        Client failing = spy(client);
+        doThrow(new NoClassDefFoundError("org/example/Missing")).when(failing).bulk(anyString(), any());
+
+        try
+        {
+            new BulkLoader(failing, "bulk-index", options(2, 100)).load(file, progress::add);
+            fail("Expected an error");
+        }
+        catch (NoClassDefFoundError e)
+        {
+            assertEquals("org/example/Missing", e.getMessage());
+        }
+        assertEquals(0, server.getDocumentCount("bulk-index"));
+    }
+
+    @Test
+    public void test_load_keeps_checkpoint_when_nothing_was_acknowledged() throws IOException
+    {
+        Path checkpointFile = new File(DIRECTORY, "documents.checkpoint").toPath();
+        Files.deleteIfExists(checkpointFile);
+        BulkOptions options = options(2, 100);
+        options.setCheckpointFile(checkpointFile);
+
+        start(FakeElasticsearch.builder());
+        Client failing = spy(client);
+        doThrow(new NoClassDefFoundError("org/example/Missing")).when(failing).bulk(anyString(), any());
+        try
+        {
+            new BulkLoader(failing, "bulk-index", options).load(file, progress::add);
+            fail("Expected an error");
+        }
+        catch (NoClassDefFoundError e)
+        {
+            assertEquals(0, new BulkCheckpoint(checkpointFile, file, "bulk-index").read());
+        }
+    }
+
+    @Test
+    public void test_load_stops_on_failed_requests() throws IOException
+    {
+        start(FakeElasticsearch.builder().errors(1.0, 500));
+
+        try
+        {
+            client.bulkLoad("bulk-index", file, options(2, 100), progress::add);
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("Unknown error received from the server", e.getMessage());
+        }
+        assertTrue(server.getRequestCount("/bulk-index/_bulk") < DOCUMENTS / 100);
+    }
+}
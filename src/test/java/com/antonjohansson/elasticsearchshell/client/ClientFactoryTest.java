@@ -76,4 +76,51 @@ public class ClientFactoryTest extends Assert
         assertNotNull(client);
         assertSame(CONNECTION, client.getConnection());
     }
+
+    @Test
+    public void test_get_client_reuses_client()
+    {
+        when(sessionManager.getCurrentSession()).thenReturn(sessionWithConnection);
+
+        Client client = factory.getClient();
+        assertSame(client, factory.getClient());
+    }
+
+    @Test
+    public void test_get_client_after_evict()
+    {
+        when(sessionManager.getCurrentSession()).thenReturn(sessionWithConnection);
+
+        Client client = factory.getClient();
+        factory.evict(CONNECTION);
+        assertNotSame(client, factory.getClient());
+    }
+
+    @Test
+    public void test_evict_keeps_client_of_other_sessions()
+    {
+        when(sessionManager.getCurrentSession()).thenReturn(sessionWithConnection);
+        when(sessionManager.isConnected(CONNECTION.getName())).thenReturn(true);
+
+        Client client = factory.getClient();
+        factory.evict(CONNECTION);
+        assertSame(client, factory.getClient());
+    }
+
+    @Test
+    public void test_get_client_after_connection_is_edited()
+    {
+        when(sessionManager.getCurrentSession()).thenReturn(sessionWithConnection);
+        Client client = factory.getClient();
+
+        Connection editedConnection = new Connection();
+        editedConnection.setHost("other-host");
+        Session session = new Session();
+        session.setConnection(editedConnection);
+        when(sessionManager.getCurrentSession()).thenReturn(session);
+
+        Client editedClient = factory.getClient();
+        assertNotSame(client, editedClient);
+        assertSame(editedConnection, editedClient.getConnection());
+    }
 }
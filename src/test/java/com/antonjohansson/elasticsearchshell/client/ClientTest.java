@@ -21,28 +21,53 @@ import static com.antonjohansson.elasticsearchshell.client.ClientTestData.ALL_IN
 import static com.antonjohansson.elasticsearchshell.client.ClientTestData.CLUSTER_HEALTH;
 import static com.antonjohansson.elasticsearchshell.client.ClientTestData.CLUSTER_INFO;
 import static com.antonjohansson.elasticsearchshell.client.ClientTestData.INDEX;
+import static com.antonjohansson.elasticsearchshell.client.ClientTestData.INDEX_MAPPINGS;
+import static com.antonjohansson.elasticsearchshell.client.ClientTestData.INDEX_NAMES;
 import static com.antonjohansson.elasticsearchshell.client.ClientTestData.INDEX_STATS;
+import static com.antonjohansson.elasticsearchshell.client.ClientTestData.NODES_HTTP;
 import static com.antonjohansson.elasticsearchshell.client.ClientTestData.NODE_STATS;
 import static com.antonjohansson.elasticsearchshell.client.ClientTestData.PORT;
-import static com.antonjohansson.elasticsearchshell.client.ClientTestData.connection;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
 import static org.mockito.Mockito.when;
 import static org.mockserver.integration.ClientAndServer.startClientAndServer;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
 import java.math.BigInteger;
+import java.util.ArrayList;
 import java.util.Base64;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-
-import org.junit.After;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+import org.junit.AfterClass;
 import org.junit.Assert;
 import org.junit.Before;
+import org.junit.BeforeClass;
 import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+import org.junit.runners.Parameterized.Parameters;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 import org.mockserver.integration.ClientAndServer;
+import org.mockserver.matchers.Times;
+import org.mockserver.model.Delay;
 import org.mockserver.model.HttpRequest;
 import org.mockserver.model.HttpResponse;
 
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
 import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.domain.ClusterHealth;
@@ -54,23 +79,50 @@ import com.antonjohansson.elasticsearchshell.domain.IndexSettings;
 import com.antonjohansson.elasticsearchshell.domain.index.IndexStats;
 import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsContainer;
 import com.antonjohansson.elasticsearchshell.domain.node.Node;
+import com.antonjohansson.elasticsearchshell.utils.FutureUtils;
 
 /**
- * Unit tests of {@link Client}.
+ * Unit tests of {@link Client}, run with each {@link Transport}.
  */
+@RunWith(Parameterized.class)
 public class ClientTest extends Assert
 {
     private static final int OK = 200;
     private static final int BAD_REQUEST = 400;
     private static final int UNAUTHORIZED = 401;
     private static final int NOT_FOUND = 404;
+    private static final int TOO_MANY_REQUESTS = 429;
     private static final int SERVER_ERROR = 500;
+    private static final int SERVICE_UNAVAILABLE = 503;
     private static final String JSON = "application/json";
+    private static final String NODE_STATS_FILTER = "nodes.*.name,nodes.*.os.cpu.percent,nodes.*.os.mem";
 
-    private ClientAndServer server;
+    private static ClientAndServer server;
     private Client client;
     private @Mock PasswordEncrypter passwordEncrypter;
 
+    @Parameter
+    public String transport;
+
+    @Parameters(name = "{0}")
+    public static List<Object[]> transports()
+    {
+        return asList(new Object[] {"cxf"}, new Object[] {"jdk"});
+    }
+
+    @BeforeClass
+    public static void startServer()
+    {
+        // The server is shared by all tests, since connections that are kept alive would otherwise outlive it
+        server = startClientAndServer(PORT);
+    }
+
+    @AfterClass
+    public static void stopServer()
+    {
+        server.stop();
+    }
+
     @Before
     public void setUp()
     {
@@ -80,12 +132,16 @@ public class ClientTest extends Assert
         when(passwordEncrypter.decrypt("elastic", "encrypted-bad-password")).thenReturn("bad-password");
         when(passwordEncrypter.decrypt("elastic", "encrypted-ok-password")).thenReturn("ok-password");
 
-        server = startClientAndServer(PORT);
+        server.reset();
         server.when(request().withHeader("Authorization", authorization("server-error"))).respond(response(SERVER_ERROR));
         server.when(request().withHeader("Authorization", authorization("bad-password"))).respond(response(UNAUTHORIZED));
         server.when(request().withHeader("Authorization", authorization("ok-password"))).respond(response(OK).withBody("{}"));
         server.when(request().withMethod("GET").withPath("/_cluster/health")).respond(response(OK).withBody(CLUSTER_HEALTH));
         server.when(request().withMethod("GET").withPath("/_mappings")).respond(response(OK).withBody(ALL_INDICES_AND_MAPPINGS));
+        server.when(request().withMethod("GET").withPath("/my-index/_mapping")).respond(response(OK).withBody(INDEX_MAPPINGS));
+        server.when(request().withMethod("GET").withPath("/my-alias/_mapping")).respond(response(OK).withBody(INDEX_MAPPINGS));
+        server.when(request().withMethod("GET").withPath("/non-existing-index/_mapping")).respond(response(NOT_FOUND));
+        server.when(request().withMethod("GET").withPath("/_cluster/state/metadata").withQueryStringParameter("filter_path", "metadata.indices.*.state")).respond(response(OK).withBody(INDEX_NAMES));
 
         // Create index
         server.when(request().withMethod("PUT").withPath("/my-new-index").withBody(INDEX)).respond(response(OK).withBody(ACK_TRUE));
@@ -97,13 +153,23 @@ public class ClientTest extends Assert
         server.when(request().withMethod("DELETE").withPath("/not-existing-index")).respond(response(NOT_FOUND));
 
         // Statistics
-        server.when(request().withMethod("GET").withPath("/_nodes/stats")).respond(response(OK).withBody(NODE_STATS));
-        server.when(request().withMethod("GET").withPath("/test-index/_stats")).respond(response(OK).withBody(INDEX_STATS));
+        server.when(request().withMethod("GET").withPath("/_nodes/node1/stats/os").withQueryStringParameter("filter_path", NODE_STATS_FILTER)).respond(response(OK).withBody(NODE_STATS));
+        server.when(request().withMethod("GET").withPath("/_nodes/YjwABNYGThechGoNdM0rBA/stats/os").withQueryStringParameter("filter_path", NODE_STATS_FILTER)).respond(response(OK).withBody(NODE_STATS));
+        server.when(request().withMethod("GET").withPath("/_nodes/.*/stats/os")).respond(response(OK).withBody("{}"));
+        server.when(request().withMethod("GET").withPath("/_nodes/http").withQueryStringParameter("filter_path", "nodes.*.http.publish_address")).respond(response(OK).withBody(NODES_HTTP));
+        server.when(request().withMethod("GET").withPath("/test-index/_stats/docs")).respond(response(OK).withBody(INDEX_STATS));
 
         // Cluster
         server.when(request().withMethod("GET")).respond(response(OK).withBody(CLUSTER_INFO));
     }
 
+    private Connection connection()
+    {
+        Connection connection = ClientTestData.connection();
+        connection.setTransport(transport);
+        return connection;
+    }
+
     private HttpRequest request()
     {
         return HttpRequest.request().withHeader("Accept", JSON).withHeader("Content-Type", JSON);
@@ -119,12 +185,6 @@ public class ClientTest extends Assert
         return "Basic " + Base64.getEncoder().encodeToString(("elastic:" + password).getBytes());
     }
 
-    @After
-    public void tearDown()
-    {
-        server.stop();
-    }
-
     @Test
     public void test_getConnection()
     {
@@ -215,6 +275,342 @@ public class ClientTest extends Assert
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void test_cached_responses()
+    {
+        ClusterHealth health = client.getClusterHealth();
+        assertSame(health, client.getClusterHealth());
+        assertSame(client.getClusterInfo(), client.getClusterInfo());
+
+        // Changing an index must invalidate the health of the cluster
+        client.deleteIndex("my-index");
+        assertNotSame(health, client.getClusterHealth());
+
+        assertEquals(1, client.getResponseCache().getStatistics().get("cluster-health").getHits());
+        assertEquals(2, client.getResponseCache().getStatistics().get("cluster-health").getMisses());
+        assertEquals(1, client.getResponseCache().getStatistics().get("cluster-info").getHits());
+    }
+
+    @Test
+    public void test_cache_times_of_connection()
+    {
+        Connection connection = connection();
+        connection.setClusterHealthCacheTime(0);
+        Client client = new Client(connection, passwordEncrypter);
+
+        assertNotSame(client.getClusterHealth(), client.getClusterHealth());
+        assertSame(client.getClusterInfo(), client.getClusterInfo());
+        assertEquals(0, client.getResponseCache().getStatistics().get("cluster-health").getHits());
+    }
+
+    @Test
+    public void test_getCurrentClusterHealth()
+    {
+        ClusterHealth health = client.getClusterHealth();
+        ClusterHealth current = client.getCurrentClusterHealth();
+        assertNotSame(health, current);
+        assertEquals(health, current);
+
+        // The current health is cached for the other users of the health
+        assertSame(current, client.getClusterHealth());
+    }
+
+    @Test
+    public void test_failover_to_other_host()
+    {
+        Connection connection = connection();
+        connection.setHost("localhost:1,localhost");
+        Client client = new Client(connection, passwordEncrypter);
+
+        // The first host is tried first. Requests that never reached it are retried, even if they are not idempotent.
+        assertFalse(client.createIndex("not-acknowledged-index", new Index()));
+
+        for (int i = 0; i < 3; i++)
+        {
+            assertEquals("my-test-cluster", client.getClusterInfo().getClusterName());
+            client.getResponseCache().invalidate("/");
+        }
+    }
+
+    @Test
+    public void test_no_reachable_host()
+    {
+        Connection connection = connection();
+        connection.setHost("localhost:1,localhost:2");
+        Client client = new Client(connection, passwordEncrypter);
+
+        try
+        {
+            client.getClusterInfo();
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertTrue(e.getMessage().startsWith("Could not connect to http://localhost:"));
+        }
+    }
+
+    @Test
+    public void test_getHttpAddresses()
+    {
+        List<String> actual = client.getHttpAddresses();
+        List<String> expected = asList("http://127.0.0.1:1337", "http://es2:9201");
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test_sniff()
+    {
+        client.sniff();
+        assertEquals(asList("http://127.0.0.1:1337", "http://es2:9201"), client.getHostPool().getURLs());
+    }
+
+    @Test
+    public void test_sniff_with_unreachable_hosts()
+    {
+        Connection connection = connection();
+        connection.setHost("localhost:1");
+        Client client = new Client(connection, passwordEncrypter);
+
+        client.sniff();
+        assertEquals(asList("http://localhost:1"), client.getHostPool().getURLs());
+    }
+
+    @Test
+    public void test_retry_overloaded_request()
+    {
+        // Clearing also removes the catch-all, so it is restored afterwards
+        server.clear(HttpRequest.request().withPath("/busy-index/_mapping"));
+        server.when(request().withMethod("GET").withPath("/busy-index/_mapping"), Times.exactly(1)).respond(response(TOO_MANY_REQUESTS));
+        server.when(request().withMethod("GET").withPath("/busy-index/_mapping"), Times.exactly(1)).respond(response(SERVICE_UNAVAILABLE));
+        server.when(request().withMethod("GET").withPath("/busy-index/_mapping")).respond(response(OK).withBody(INDEX_MAPPINGS));
+        server.when(request().withMethod("GET")).respond(response(OK).withBody(CLUSTER_INFO));
+
+        Optional<IndexMappings> actual = client.getMappings("busy-index");
+        Optional<IndexMappings> expected = Optional.of(ClientTestData.ACTUAL_ALL_MAPPINGS.get("my-index"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test_retry_overloaded_request_gives_up()
+    {
+        server.clear(HttpRequest.request().withPath("/busy-index/_mapping"));
+        server.when(request().withMethod("GET").withPath("/busy-index/_mapping")).respond(response(SERVICE_UNAVAILABLE));
+
+        try
+        {
+            client.getMappings("busy-index");
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("The cluster is overloaded, try again later", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_overloaded_request_is_not_retried_if_not_idempotent()
+    {
+        server.clear(HttpRequest.request().withMethod("DELETE").withPath("/busy-index"));
+        server.when(request().withMethod("DELETE").withPath("/busy-index"), Times.exactly(1)).respond(response(SERVICE_UNAVAILABLE));
+        server.when(request().withMethod("DELETE").withPath("/busy-index")).respond(response(OK).withBody(ACK_TRUE));
+
+        assertFalse(client.deleteIndex("busy-index"));
+    }
+
+    @Test
+    public void test_read_timeout()
+    {
+        server.clear(HttpRequest.request().withPath("/slow-index/_mapping"));
+        server.when(request().withMethod("GET").withPath("/slow-index/_mapping")).respond(response(OK).withBody(INDEX_MAPPINGS).withDelay(new Delay(TimeUnit.SECONDS, 2)));
+
+        Connection connection = connection();
+        connection.setReadTimeout(100);
+        connection.setCommandTimeout(0);
+        Client client = new Client(connection, passwordEncrypter);
+
+        try
+        {
+            client.getMappings("slow-index");
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("Timed out waiting for a response from http://localhost:1337", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_command_timeout()
+    {
+        server.clear(HttpRequest.request().withPath("/slow-index/_mapping"));
+        server.when(request().withMethod("GET").withPath("/slow-index/_mapping")).respond(response(OK).withBody(INDEX_MAPPINGS).withDelay(new Delay(TimeUnit.SECONDS, 2)));
+
+        Connection connection = connection();
+        connection.setCommandTimeout(200);
+        Client client = new Client(connection, passwordEncrypter);
+
+        CommandContext context = CommandContext.begin();
+        long start = System.currentTimeMillis();
+        try
+        {
+            client.getMappingsAsync("slow-index").join();
+            fail("Expected an exception");
+        }
+        catch (CompletionException e)
+        {
+            assertEquals("The command timed out after 200 ms", e.getCause().getMessage());
+            assertTrue(System.currentTimeMillis() - start < 1500);
+        }
+        finally
+        {
+            context.end();
+        }
+    }
+
+    @Test
+    public void test_concurrent_requests_are_shared() throws Exception
+    {
+        server.clear(HttpRequest.request().withPath("/_cluster/health"));
+        server.when(request().withMethod("GET").withPath("/_cluster/health")).respond(response(OK).withBody(CLUSTER_HEALTH).withDelay(new Delay(TimeUnit.MILLISECONDS, 500)));
+
+        Connection connection = connection();
+        connection.setCacheSize(0);
+        Client client = new Client(connection, passwordEncrypter);
+
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try
+        {
+            List<Future<ClusterHealth>> responses = new ArrayList<>();
+            for (int i = 0; i < 8; i++)
+            {
+                responses.add(executor.submit(client::getClusterHealth));
+            }
+            for (Future<ClusterHealth> response : responses)
+            {
+                assertEquals("my-test-cluster", response.get().getClusterName());
+            }
+        }
+        finally
+        {
+            executor.shutdown();
+        }
+
+        assertEquals(1, server.retrieveRecordedRequests(request().withPath("/_cluster/health")).length);
+        client.getClusterHealth();
+        assertEquals(2, server.retrieveRecordedRequests(request().withPath("/_cluster/health")).length);
+    }
+
+    @Test
+    public void test_prefetch() throws InterruptedException
+    {
+        server.clear(HttpRequest.request().withPath("/_nodes"));
+        server.when(request().withMethod("GET").withPath("/_nodes").withQueryStringParameter("filter_path", "nodes.*.name"))
+                .respond(response(OK).withBody("{\"nodes\":{\"YjwABNYGThechGoNdM0rBA\":{\"name\":\"node1\"}}}"));
+
+        client.prefetch();
+        HttpRequest nodes = request().withPath("/_nodes");
+        HttpRequest indexNames = request().withPath("/_cluster/state/metadata");
+        for (int i = 0; i < 50 && (server.retrieveRecordedRequests(nodes).length == 0 || server.retrieveRecordedRequests(indexNames).length == 0); i++)
+        {
+            Thread.sleep(20);
+        }
+        assertEquals(1, server.retrieveRecordedRequests(nodes).length);
+        assertEquals(1, server.retrieveRecordedRequests(indexNames).length);
+
+        // Nodes are targeted by their identifiers once they are known
+        client.loadNodeIds();
+        assertEquals("node1", client.getNodeInfo("node1").getName());
+        assertEquals(1, server.retrieveRecordedRequests(request().withPath("/_nodes/YjwABNYGThechGoNdM0rBA/stats/os")).length);
+        assertEquals(0, server.retrieveRecordedRequests(request().withPath("/_nodes/node1/stats/os")).length);
+    }
+
+    @Test
+    public void test_compressed_response() throws IOException
+    {
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (OutputStream stream = new GZIPOutputStream(body))
+        {
+            stream.write(INDEX_MAPPINGS.getBytes(UTF_8));
+        }
+        server.clear(HttpRequest.request().withPath("/compressed-index/_mapping"));
+        server.when(request().withMethod("GET").withPath("/compressed-index/_mapping").withHeader("Accept-Encoding", "gzip"))
+                .respond(response(OK).withHeader("Content-Encoding", "gzip").withBody(body.toByteArray()));
+
+        Optional<IndexMappings> actual = client.getMappings("compressed-index");
+        Optional<IndexMappings> expected = Optional.of(ClientTestData.ACTUAL_ALL_MAPPINGS.get("my-index"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test_binary_response() throws IOException
+    {
+        server.clear(HttpRequest.request().withPath("/binary-index/_stats/docs"));
+        for (Codec codec : asList(Codec.SMILE, Codec.CBOR))
+        {
+            byte[] body = codec.getMapper().writeValueAsBytes(Codec.JSON.getMapper().readTree(INDEX_STATS.replace("test-index", "binary-index")));
+            String mediaType = codec.getMediaType();
+            server.when(HttpRequest.request().withMethod("GET").withPath("/binary-index/_stats/docs").withHeader("Accept", mediaType))
+                    .respond(HttpResponse.response().withStatusCode(OK).withHeader("Content-Type", mediaType).withBody(body));
+
+            Connection connection = connection();
+            connection.setFormat(codec.name().toLowerCase());
+            Client client = new Client(connection, passwordEncrypter);
+
+            IndexStatsContainer actual = client.getIndexStats("binary-index").get();
+            assertEquals(18, actual.getTotal().getDocuments().getCount());
+        }
+    }
+
+    @Test
+    public void test_cancel() throws InterruptedException
+    {
+        server.clear(HttpRequest.request().withPath("/slow-index/_mapping"));
+        server.when(request().withMethod("GET").withPath("/slow-index/_mapping")).respond(response(OK).withBody(INDEX_MAPPINGS).withDelay(new Delay(TimeUnit.SECONDS, 2)));
+
+        Connection connection = connection();
+        connection.setCommandTimeout(0);
+        Client client = new Client(connection, passwordEncrypter);
+
+        CommandContext context = CommandContext.begin();
+        String tasks = "{\"nodes\":{\"node1\":{\"tasks\":{"
+            + "\"node1:42\":{\"cancellable\":true,\"headers\":{\"X-Opaque-Id\":\"" + context.getId() + "\"}},"
+            + "\"node1:43\":{\"cancellable\":true,\"headers\":{\"X-Opaque-Id\":\"another-command\"}}}}}}";
+        server.when(request().withMethod("GET").withPath("/_tasks")).respond(response(OK).withBody(tasks));
+        server.when(request().withMethod("POST").withPath("/_tasks/node1:42/_cancel")).respond(response(OK).withBody("{}"));
+
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+        long start = System.currentTimeMillis();
+        try
+        {
+            executor.schedule(context::cancel, 200, TimeUnit.MILLISECONDS);
+            client.getMappings("slow-index");
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("The command was cancelled", e.getMessage());
+            assertTrue(System.currentTimeMillis() - start < 1500);
+        }
+        finally
+        {
+            context.end();
+            executor.shutdown();
+        }
+
+        HttpRequest cancel = request().withMethod("POST").withPath("/_tasks/node1:42/_cancel");
+        for (int i = 0; i < 50 && server.retrieveRecordedRequests(cancel).length == 0; i++)
+        {
+            Thread.sleep(20);
+        }
+        assertEquals(1, server.retrieveRecordedRequests(cancel).length);
+        assertEquals(0, server.retrieveRecordedRequests(request().withPath("/_tasks/node1:43/_cancel")).length);
+        assertEquals(context.getId(), server.retrieveRecordedRequests(request().withPath("/slow-index/_mapping"))[0].getFirstHeader("X-Opaque-Id"));
+    }
+
     @Test
     public void test_getMappings()
     {
@@ -224,6 +620,49 @@ public class ClientTest extends Assert
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void test_getMappings_for_index()
+    {
+        Optional<IndexMappings> actual = client.getMappings("my-index");
+        Optional<IndexMappings> expected = Optional.of(ClientTestData.ACTUAL_ALL_MAPPINGS.get("my-index"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test_getMappings_for_alias()
+    {
+        Optional<IndexMappings> actual = client.getMappings("my-alias");
+        Optional<IndexMappings> expected = Optional.of(ClientTestData.ACTUAL_ALL_MAPPINGS.get("my-index"));
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test_getMappings_for_missing_index()
+    {
+        Optional<IndexMappings> actual = client.getMappings("non-existing-index");
+        assertFalse(actual.isPresent());
+    }
+
+    @Test
+    public void test_getIndexNames()
+    {
+        List<String> actual = client.getIndexNames();
+        List<String> expected = asList("my-index", "data", "my-other-index");
+
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void test_getIndexCatalog()
+    {
+        List<String> actual = client.getIndexCatalog().getNamesStartingWith("my");
+        List<String> expected = asList("my-index", "my-other-index");
+
+        assertEquals(expected, actual);
+    }
+
     @Test
     public void test_createIndex()
     {
@@ -303,4 +742,62 @@ public class ClientTest extends Assert
 
         assertEquals(expected, actual);
     }
+
+    @Test
+    public void test_getNodeInfo_uses_node_identifier_on_subsequent_lookups()
+    {
+        Node node = client.getNodeInfo("node1");
+
+        // Subsequent lookups must not find the node by its name (clearing also removes the catch-all, so restore it)
+        server.clear(HttpRequest.request().withPath("/_nodes/node1/stats/os"));
+        server.when(request().withMethod("GET")).respond(response(OK).withBody(CLUSTER_INFO));
+
+        assertEquals(node, client.getNodeInfo("node1"));
+    }
+
+    @Test
+    public void test_getNodeInfo_missing_node()
+    {
+        try
+        {
+            client.getNodeInfo("node2");
+            fail("Exception expected");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("No node with name 'node2' was found", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_async()
+    {
+        CompletableFuture<ClusterInfo> clusterInfo = client.getClusterInfoAsync();
+        CompletableFuture<ClusterHealth> clusterHealth = client.getClusterHealthAsync();
+        CompletableFuture<Optional<IndexStatsContainer>> indexStats = client.getIndexStatsAsync("test-index");
+
+        assertEquals("my-test-cluster", FutureUtils.join(clusterInfo).getClusterName());
+        assertEquals("green", FutureUtils.join(clusterHealth).getStatus());
+        assertEquals(18, FutureUtils.join(indexStats).get().getTotal().getDocuments().getCount());
+    }
+
+    @Test
+    public void test_async_with_bad_credentials()
+    {
+        Connection connection = connection();
+        connection.setUsername("elastic");
+        connection.setPassword("encrypted-bad-password");
+
+        Client client = new Client(connection, passwordEncrypter);
+
+        try
+        {
+            FutureUtils.join(client.getClusterInfoAsync());
+            fail("Exception expected");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("Bad credentials", e.getMessage());
+        }
+    }
 }
@@ -0,0 +1,90 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static com.antonjohansson.elasticsearchshell.client.ClientTestData.INDEX_STATS;
+
+import java.util.Map;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsContainer;
+import com.antonjohansson.elasticsearchshell.domain.index.IndexStatsResult;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Unit tests of {@link Codec}.
+ */
+public class CodecTest extends Assert
+{
+    @Test
+    public void test_of_name()
+    {
+        assertEquals(Codec.JSON, Codec.of("json"));
+        assertEquals(Codec.SMILE, Codec.of("SMILE"));
+        assertEquals(Codec.CBOR, Codec.of("cbor"));
+        assertEquals(Codec.JSON, Codec.of("yaml"));
+        assertEquals(Codec.JSON, Codec.of(null));
+    }
+
+    @Test
+    public void test_forContentType()
+    {
+        assertEquals(Codec.JSON, Codec.forContentType("application/json; charset=UTF-8"));
+        assertEquals(Codec.SMILE, Codec.forContentType("application/smile"));
+        assertEquals(Codec.CBOR, Codec.forContentType("Application/CBOR"));
+        assertEquals(Codec.JSON, Codec.forContentType(null));
+    }
+
+    @Test
+    public void test_round_trip() throws Exception
+    {
+        JsonNode expected = Codec.JSON.getMapper().readTree(INDEX_STATS);
+        for (Codec codec : Codec.values())
+        {
+            byte[] content = codec.getMapper().writeValueAsBytes(expected);
+            JsonNode actual = codec.getMapper().readTree(content);
+            assertEquals(expected, actual);
+        }
+    }
+
+    @Test
+    public void test_readers_and_writers_are_reused()
+    {
+        JavaType type = Codec.JSON.getMapper().getTypeFactory().constructMapType(Map.class, String.class, IndexStatsContainer.class);
+        assertSame(Codec.JSON.getReader(IndexStatsResult.class), Codec.JSON.getReader(IndexStatsResult.class));
+        assertSame(Codec.JSON.getReader(type), Codec.JSON.getReader(type));
+        assertSame(Codec.SMILE.getWriter(IndexStatsResult.class), Codec.SMILE.getWriter(IndexStatsResult.class));
+        assertNotSame(Codec.JSON.getReader(IndexStatsResult.class), Codec.SMILE.getReader(IndexStatsResult.class));
+    }
+
+    @Test
+    public void test_readValue_from_parser() throws Exception
+    {
+        IndexStatsResult expected = Codec.JSON.getReader(IndexStatsResult.class).readValue(INDEX_STATS);
+        byte[] content = Codec.SMILE.getWriter(IndexStatsResult.class).writeValueAsBytes(expected);
+
+        try (JsonParser parser = Codec.SMILE.getMapper().getFactory().createParser(content))
+        {
+            assertEquals(Codec.SMILE, Codec.forParser(parser));
+            IndexStatsResult actual = Codec.readValue(parser, IndexStatsResult.class);
+            assertEquals(expected.getIndices().keySet(), actual.getIndices().keySet());
+        }
+    }
+}
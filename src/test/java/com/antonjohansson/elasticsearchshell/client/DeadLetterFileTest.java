@@ -0,0 +1,148 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link DeadLetterFile}.
+ */
+public class DeadLetterFileTest extends Assert
+{
+    private static final File DIRECTORY = new File("target/bulk");
+
+    private Path path;
+    private DeadLetterFile file;
+
+    @Before
+    public void setUp() throws IOException
+    {
+        forceMkdir(DIRECTORY);
+        path = new File(DIRECTORY, "dead-letters.ndjson").toPath();
+        Files.deleteIfExists(path);
+        file = new DeadLetterFile(path);
+    }
+
+    @After
+    public void tearDown() throws IOException
+    {
+        file.close();
+    }
+
+    private byte[] line(String lines, String error)
+    {
+        return DeadLetterFile.format(ByteBuffer.wrap(lines.getBytes(UTF_8)), error);
+    }
+
+    @Test
+    public void test_write() throws IOException
+    {
+        file.open(0);
+        file.write(line("{\"index\":{\"_id\":\"1\"}} \r\n\n{\"number\":\"one\"}\n", "failed to parse [number]"));
+        file.write(line("{\"delete\":{\"_id\":\"2\"}}\n", "\"quoted\""));
+        file.close();
+
+        assertEquals(asList(
+                "{\"error\":\"failed to parse [number]\",\"action\":{\"index\":{\"_id\":\"1\"}},\"source\":{\"number\":\"one\"}}",
+                "{\"error\":\"\\\"quoted\\\"\",\"action\":{\"delete\":{\"_id\":\"2\"}}}"),
+                Files.readAllLines(path, UTF_8));
+        assertEquals(Files.size(path), file.getLength());
+    }
+
+    @Test
+    public void test_sync_before_close() throws IOException
+    {
+        file.write(line("{\"index\":{}}\n{}\n", "failed"));
+        assertEquals(0, Files.size(path));
+
+        // Whatever happens to the process after the sync, the action is on the disk
+        file.sync();
+        assertEquals(asList("{\"error\":\"failed\",\"action\":{\"index\":{}},\"source\":{}}"), Files.readAllLines(path, UTF_8));
+    }
+
+    @Test
+    public void test_open_discards_file_of_earlier_load() throws IOException
+    {
+        Files.write(path, "{\"error\":\"old\",\"action\":{\"index\":{}}}\n".getBytes(UTF_8));
+
+        file.open(0);
+        file.close();
+        assertFalse(Files.exists(path));
+    }
+
+    @Test
+    public void test_open_resumed_load() throws IOException
+    {
+        byte[] first = line("{\"delete\":{\"_id\":\"1\"}}\n", "checkpointed");
+        byte[] second = line("{\"delete\":{\"_id\":\"2\"}}\n", "sent again");
+        Files.write(path, first);
+        Files.write(path, second, StandardOpenOption.APPEND);
+
+        file.open(first.length);
+        file.write(second);
+        file.close();
+
+        assertEquals(asList(
+                "{\"error\":\"checkpointed\",\"action\":{\"delete\":{\"_id\":\"1\"}}}",
+                "{\"error\":\"sent again\",\"action\":{\"delete\":{\"_id\":\"2\"}}}"),
+                Files.readAllLines(path, UTF_8));
+    }
+
+    @Test
+    public void test_open_resumed_load_of_shorter_file() throws IOException
+    {
+        Files.write(path, new byte[10]);
+        try
+        {
+            file.open(20);
+            fail("Expected an exception");
+        }
+        catch (IOException e)
+        {
+            assertEquals("'" + path + "' is shorter than when the checkpoint was written", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_write_after_close() throws IOException
+    {
+        file.write(line("{\"delete\":{}}\n", "failed"));
+        file.close();
+        try
+        {
+            file.write(line("{\"delete\":{}}\n", "failed"));
+            fail("Expected an exception");
+        }
+        catch (IOException e)
+        {
+            assertEquals("'" + path + "' has already been closed", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,1040 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.zip.GZIPInputStream;
+
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * An in-process stand-in for an Elasticsearch cluster, used to test and benchmark the client without a real cluster.
+ * <p>
+ * The cluster is synthesized from a number of nodes and indices, and answers the requests that {@link Client} sends,
+ * as well as bulk and scroll requests. Latency, errors and rejections of bulk items can be injected. They are drawn
+ * from a seeded random number generator, so that sequential runs are repeatable.
+ */
+final class FakeElasticsearch implements Closeable
+{
+    private static final JsonNodeFactory NODES = JsonNodeFactory.instance;
+    private static final ObjectMapper MAPPER = Codec.JSON.getMapper();
+    private static final String TYPE = "doc";
+    private static final int SHARDS_PER_INDEX = 5;
+    private static final int DEFAULT_SEARCH_SIZE = 10;
+    private static final int OK = 200;
+    private static final int CREATED = 201;
+    private static final int BAD_REQUEST = 400;
+    private static final int NOT_FOUND = 404;
+    private static final int CONFLICT = 409;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final int SERVER_ERROR = 500;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Builder configuration;
+    private final Random random;
+    private final Map<String, FakeIndex> indices = new ConcurrentSkipListMap<>();
+    private final Map<String, Scroll> scrolls = new ConcurrentHashMap<>();
+    private final AtomicLong scrollIds = new AtomicLong();
+    private final Map<String, LongAdder> requestCounts = new ConcurrentHashMap<>();
+    private final LongAdder requestCount = new LongAdder();
+
+    private FakeElasticsearch(Builder configuration) throws IOException
+    {
+        this.configuration = configuration;
+        this.random = new Random(configuration.seed);
+        for (int i = 0; i < configuration.indexCount; i++)
+        {
+            FakeIndex index = new FakeIndex(getIndexName(i), generateMappings(configuration.fieldsPerIndex));
+            for (int document = 0; document < configuration.documentsPerIndex; document++)
+            {
+                index.put(String.valueOf(document), generateDocument(document, configuration.fieldsPerIndex));
+            }
+            indices.put(index.name, index);
+        }
+
+        // Without this, the headers and body of responses are delayed by Nagle's algorithm
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        executor = Executors.newCachedThreadPool(runnable ->
+        {
+            Thread thread = new Thread(runnable, "fake-elasticsearch");
+            thread.setDaemon(true);
+            return thread;
+        });
+        server = HttpServer.create(new InetSocketAddress("localhost", configuration.port), 0);
+        server.setExecutor(executor);
+        server.createContext("/", this::handle);
+        server.start();
+    }
+
+    /**
+     * Creates a builder of a fake cluster, which defaults to a single node without any indices.
+     */
+    static Builder builder()
+    {
+        return new Builder();
+    }
+
+    static String getNodeId(int node)
+    {
+        return String.format("fake-node-id-%08d", node);
+    }
+
+    static String getNodeName(int node)
+    {
+        return "node-" + node;
+    }
+
+    static String getIndexName(int index)
+    {
+        return "index-" + index;
+    }
+
+    int getPort()
+    {
+        return server.getAddress().getPort();
+    }
+
+    /**
+     * Gets a connection to this cluster.
+     */
+    Connection connection()
+    {
+        Connection connection = new Connection();
+        connection.setHost("localhost");
+        connection.setPort(getPort());
+        connection.setName("fake-elasticsearch");
+        return connection;
+    }
+
+    /**
+     * Gets the total number of requests that have been received.
+     */
+    long getRequestCount()
+    {
+        return requestCount.sum();
+    }
+
+    /**
+     * Gets the number of requests that have been received for the given path, such as {@code /_bulk}.
+     */
+    long getRequestCount(String path)
+    {
+        LongAdder count = requestCounts.get(path);
+        return count == null ? 0 : count.sum();
+    }
+
+    /**
+     * Gets the number of documents in the given index, or zero if it does not exist.
+     */
+    int getDocumentCount(String indexName)
+    {
+        FakeIndex index = indices.get(indexName);
+        return index == null ? 0 : index.size();
+    }
+
+    /**
+     * Gets a document of an index, or {@code null} if it does not exist.
+     */
+    JsonNode getDocument(String indexName, String id)
+    {
+        FakeIndex index = indices.get(indexName);
+        return index == null ? null : index.get(id);
+    }
+
+    @Override
+    public void close()
+    {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    private void handle(HttpExchange exchange) throws IOException
+    {
+        String path = exchange.getRequestURI().getRawPath();
+        requestCount.increment();
+        requestCounts.computeIfAbsent(path, key -> new LongAdder()).increment();
+
+        Reply reply;
+        try
+        {
+            byte[] body = readBody(exchange);
+            sleep(draw(configuration.minimumLatency, configuration.maximumLatency));
+            if (draw(configuration.errorRate))
+            {
+                reply = error(configuration.errorStatus, getErrorType(configuration.errorStatus), "injected failure");
+            }
+            else
+            {
+                reply = route(exchange.getRequestMethod(), path, getQuery(exchange.getRequestURI().getRawQuery()), body);
+            }
+        }
+        catch (IOException e)
+        {
+            reply = error(BAD_REQUEST, "parse_exception", e.getMessage());
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return;
+        }
+        catch (RuntimeException e)
+        {
+            reply = error(SERVER_ERROR, "exception", String.valueOf(e));
+        }
+        respond(exchange, reply);
+    }
+
+    private Reply route(String method, String path, Map<String, String> query, byte[] body) throws IOException
+    {
+        String[] parts = Arrays.stream(path.split("/"))
+                .filter(part -> !part.isEmpty())
+                .map(FakeElasticsearch::decode)
+                .toArray(String[]::new);
+
+        if (parts.length == 0)
+        {
+            return clusterInfo();
+        }
+
+        String first = parts[0];
+        String second = parts.length > 1 ? parts[1] : "";
+        if (first.equals("_cluster") && second.equals("health"))
+        {
+            return clusterHealth();
+        }
+        else if (first.equals("_cluster") && second.equals("state") && parts.length > 2 && parts[2].equals("metadata"))
+        {
+            return clusterStateMetadata();
+        }
+        else if ((first.equals("_mapping") || first.equals("_mappings")) && parts.length == 1)
+        {
+            return mappings(indices.keySet());
+        }
+        else if (first.equals("_nodes") && second.equals("http"))
+        {
+            return nodesHttp();
+        }
+        else if (first.equals("_nodes") && parts.length > 2 && parts[2].equals("stats"))
+        {
+            return nodeStats(second);
+        }
+        else if (first.equals("_tasks"))
+        {
+            return new Reply(OK, NODES.objectNode().set("nodes", NODES.objectNode()));
+        }
+        else if (first.equals("_bulk"))
+        {
+            return bulk(null, body);
+        }
+        else if (first.equals("_search") && second.equals("scroll"))
+        {
+            return method.equals("DELETE") ? clearScroll(query, body) : scroll(query, body);
+        }
+        else if (first.equals("_search"))
+        {
+            return search(indices.keySet(), query);
+        }
+        else if (first.startsWith("_"))
+        {
+            return noHandler(method, path);
+        }
+
+        switch (second)
+        {
+            case "":
+                return method.equals("PUT") ? createIndex(first, body) : method.equals("DELETE") ? deleteIndex(first) : noHandler(method, path);
+            case "_mapping":
+            case "_mappings":
+                return mappings(getIndexNames(first));
+            case "_stats":
+                return indexStats(getIndexNames(first));
+            case "_bulk":
+                return bulk(first, body);
+            case "_search":
+                return search(getIndexNames(first), query);
+            default:
+                return noHandler(method, path);
+        }
+    }
+
+    private Reply clusterInfo()
+    {
+        ObjectNode info = NODES.objectNode();
+        info.put("name", getNodeName(0));
+        info.put("cluster_name", "fake-elasticsearch");
+        info.putObject("version").put("number", "5.4.0");
+        info.put("tagline", "You Know, for Search");
+        return new Reply(OK, info);
+    }
+
+    private Reply clusterHealth()
+    {
+        int primaries = indices.size() * SHARDS_PER_INDEX;
+        boolean replicated = configuration.nodeCount > 1;
+
+        ObjectNode health = NODES.objectNode();
+        health.put("cluster_name", "fake-elasticsearch");
+        health.put("status", replicated || primaries == 0 ? "green" : "yellow");
+        health.put("timed_out", false);
+        health.put("number_of_nodes", configuration.nodeCount);
+        health.put("number_of_data_nodes", configuration.nodeCount);
+        health.put("active_primary_shards", primaries);
+        health.put("active_shards", replicated ? 2 * primaries : primaries);
+        health.put("relocating_shards", 0);
+        health.put("initializing_shards", 0);
+        health.put("unassigned_shards", replicated ? 0 : primaries);
+        health.put("active_shards_percent_as_number", replicated || primaries == 0 ? 100.0 : 50.0);
+        return new Reply(OK, health);
+    }
+
+    private Reply clusterStateMetadata()
+    {
+        ObjectNode states = NODES.objectNode();
+        for (FakeIndex index : indices.values())
+        {
+            states.putObject(index.name).put("state", "open");
+        }
+        ObjectNode state = NODES.objectNode();
+        state.putObject("metadata").set("indices", states);
+        return new Reply(OK, state);
+    }
+
+    private Reply mappings(Iterable<String> names)
+    {
+        ObjectNode result = NODES.objectNode();
+        for (String name : names)
+        {
+            FakeIndex index = indices.get(name);
+            if (index == null)
+            {
+                return indexNotFound(name);
+            }
+            result.putObject(name).set("mappings", index.mappings);
+        }
+        return new Reply(OK, result);
+    }
+
+    private Reply indexStats(Iterable<String> names)
+    {
+        ObjectNode result = NODES.objectNode();
+        ObjectNode stats = result.putObject("indices");
+        for (String name : names)
+        {
+            FakeIndex index = indices.get(name);
+            if (index == null)
+            {
+                return indexNotFound(name);
+            }
+            ObjectNode indexStats = stats.putObject(name);
+            for (String type : new String[] {"primaries", "total"})
+            {
+                ObjectNode docs = indexStats.putObject(type).putObject("docs");
+                docs.put("count", index.size());
+                docs.put("deleted", 0);
+            }
+        }
+        return new Reply(OK, result);
+    }
+
+    private Reply nodesHttp()
+    {
+        ObjectNode result = NODES.objectNode();
+        ObjectNode nodes = result.putObject("nodes");
+        for (int i = 0; i < configuration.nodeCount; i++)
+        {
+            // All nodes are served by this server
+            nodes.putObject(getNodeId(i)).putObject("http").put("publish_address", "127.0.0.1:" + getPort());
+        }
+        return new Reply(OK, result);
+    }
+
+    private Reply nodeStats(String filter)
+    {
+        List<String> filters = Arrays.asList(filter.split(","));
+        boolean all = filters.contains("_all") || filters.contains("_local");
+
+        ObjectNode result = NODES.objectNode();
+        result.put("cluster_name", "fake-elasticsearch");
+        ObjectNode nodes = result.putObject("nodes");
+        for (int i = 0; i < configuration.nodeCount; i++)
+        {
+            String id = getNodeId(i);
+            String name = getNodeName(i);
+            if (all || filters.contains(id) || filters.contains(name))
+            {
+                ObjectNode node = nodes.putObject(id);
+                node.put("name", name);
+                ObjectNode os = node.putObject("os");
+                os.putObject("cpu").put("percent", i % 100);
+                ObjectNode memory = os.putObject("mem");
+                memory.put("total_in_bytes", 8589934592L);
+                memory.put("free_in_bytes", 2147483648L);
+                memory.put("used_in_bytes", 6442450944L);
+                memory.put("free_percent", 25);
+                memory.put("used_percent", 75);
+            }
+        }
+        return new Reply(OK, result);
+    }
+
+    private Reply createIndex(String name, byte[] body) throws IOException
+    {
+        JsonNode settings = body.length == 0 ? NODES.objectNode() : MAPPER.readTree(body);
+        JsonNode mappings = settings.path("mappings");
+        FakeIndex index = new FakeIndex(name, mappings.isObject() ? (ObjectNode) mappings : NODES.objectNode());
+        if (indices.putIfAbsent(name, index) != null)
+        {
+            return error(BAD_REQUEST, "index_already_exists_exception", "index [" + name + "] already exists");
+        }
+
+        ObjectNode acknowledgement = NODES.objectNode();
+        acknowledgement.put("acknowledged", true);
+        acknowledgement.put("shards_acknowledged", true);
+        return new Reply(OK, acknowledgement);
+    }
+
+    private Reply deleteIndex(String name)
+    {
+        if (indices.remove(name) == null)
+        {
+            return indexNotFound(name);
+        }
+        return new Reply(OK, NODES.objectNode().put("acknowledged", true));
+    }
+
+    /**
+     * Executes the operations of a bulk request, which is newline-delimited JSON where each action is followed by its
+     * document, except for deletions.
+     */
+    private Reply bulk(String defaultIndex, byte[] body) throws IOException
+    {
+        List<String> lines = new ArrayList<>();
+        for (String line : new String(body, UTF_8).split("\n"))
+        {
+            if (!line.trim().isEmpty())
+            {
+                lines.add(line);
+            }
+        }
+        if (lines.isEmpty())
+        {
+            return error(BAD_REQUEST, "action_request_validation_exception", "Validation Failed: 1: no requests added;");
+        }
+
+        ArrayNode items = NODES.arrayNode();
+        boolean errors = false;
+        for (int i = 0; i < lines.size(); i++)
+        {
+            JsonNode action = MAPPER.readTree(lines.get(i));
+            if (!action.isObject() || action.size() != 1)
+            {
+                return error(BAD_REQUEST, "illegal_argument_exception", "Malformed action/metadata line [" + (i + 1) + "]");
+            }
+
+            String operation = action.fieldNames().next();
+            JsonNode metadata = action.path(operation);
+            JsonNode source = null;
+            if (!operation.equals("delete"))
+            {
+                if (++i >= lines.size())
+                {
+                    return error(BAD_REQUEST, "action_request_validation_exception", "Validation Failed: 1: no source for the last action;");
+                }
+                source = MAPPER.readTree(lines.get(i));
+            }
+
+            ObjectNode item = bulkItem(operation, metadata, source, defaultIndex);
+            errors |= item.has("error");
+            items.addObject().set(operation, item);
+        }
+
+        ObjectNode result = NODES.objectNode();
+        result.put("took", items.size());
+        result.put("errors", errors);
+        result.set("items", items);
+        return new Reply(OK, result);
+    }
+
+    private ObjectNode bulkItem(String operation, JsonNode metadata, JsonNode source, String defaultIndex)
+    {
+        String indexName = metadata.path("_index").asText(defaultIndex);
+        String id = metadata.path("_id").asText(null);
+
+        ObjectNode item = NODES.objectNode();
+        item.put("_index", indexName);
+        item.put("_type", metadata.path("_type").asText(TYPE));
+        if (indexName == null)
+        {
+            return itemError(item, BAD_REQUEST, "action_request_validation_exception", "index is missing");
+        }
+        if (draw(configuration.rejectionRate))
+        {
+            item.put("_id", id);
+            return itemError(item, TOO_MANY_REQUESTS, "es_rejected_execution_exception", "rejected execution of bulk item (queue capacity 200)");
+        }
+
+        FakeIndex index = indices.computeIfAbsent(indexName, name -> new FakeIndex(name, NODES.objectNode()));
+        if (id == null)
+        {
+            id = index.nextId();
+        }
+        item.put("_id", id);
+
+        switch (operation)
+        {
+            case "index":
+                boolean created = index.put(id, source) == null;
+                return itemResult(item, created ? CREATED : OK, created ? "created" : "updated");
+            case "create":
+                if (index.putIfAbsent(id, source) != null)
+                {
+                    return itemError(item, CONFLICT, "version_conflict_engine_exception", "[" + TYPE + "][" + id + "]: version conflict, document already exists");
+                }
+                return itemResult(item, CREATED, "created");
+            case "update":
+                if (!index.update(id, source.path("doc")))
+                {
+                    return itemError(item, NOT_FOUND, "document_missing_exception", "[" + TYPE + "][" + id + "]: document missing");
+                }
+                return itemResult(item, OK, "updated");
+            case "delete":
+                boolean deleted = index.remove(id) != null;
+                return itemResult(item, deleted ? OK : NOT_FOUND, deleted ? "deleted" : "not_found");
+            default:
+                return itemError(item, BAD_REQUEST, "illegal_argument_exception", "Unknown action [" + operation + "]");
+        }
+    }
+
+    private static ObjectNode itemResult(ObjectNode item, int status, String result)
+    {
+        item.put("result", result);
+        item.put("status", status);
+        return item;
+    }
+
+    private static ObjectNode itemError(ObjectNode item, int status, String type, String reason)
+    {
+        item.put("status", status);
+        ObjectNode error = item.putObject("error");
+        error.put("type", type);
+        error.put("reason", reason);
+        return item;
+    }
+
+    /**
+     * Searches all documents of the given indices, optionally opening a scroll over them.
+     */
+    private Reply search(Iterable<String> names, Map<String, String> query)
+    {
+        List<ObjectNode> hits = new ArrayList<>();
+        for (String name : names)
+        {
+            FakeIndex index = indices.get(name);
+            if (index == null)
+            {
+                return indexNotFound(name);
+            }
+            index.addHits(hits);
+        }
+
+        int size = query.containsKey("size") ? Integer.parseInt(query.get("size")) : DEFAULT_SEARCH_SIZE;
+        Scroll scroll = new Scroll(hits, size);
+        String scrollId = null;
+        if (query.containsKey("scroll"))
+        {
+            scrollId = "fake-scroll-" + scrollIds.incrementAndGet();
+            scrolls.put(scrollId, scroll);
+        }
+        return new Reply(OK, searchResult(scrollId, scroll));
+    }
+
+    private Reply scroll(Map<String, String> query, byte[] body) throws IOException
+    {
+        String scrollId = query.get("scroll_id");
+        if (scrollId == null && body.length > 0)
+        {
+            scrollId = MAPPER.readTree(body).path("scroll_id").asText(null);
+        }
+
+        Scroll scroll = scrollId == null ? null : scrolls.get(scrollId);
+        if (scroll == null)
+        {
+            return error(NOT_FOUND, "search_context_missing_exception", "No search context found for id [" + scrollId + "]");
+        }
+        return new Reply(OK, searchResult(scrollId, scroll));
+    }
+
+    private Reply clearScroll(Map<String, String> query, byte[] body) throws IOException
+    {
+        List<String> scrollIds = new ArrayList<>();
+        if (query.containsKey("scroll_id"))
+        {
+            scrollIds.addAll(Arrays.asList(query.get("scroll_id").split(",")));
+        }
+        if (body.length > 0)
+        {
+            JsonNode ids = MAPPER.readTree(body).path("scroll_id");
+            if (ids.isArray())
+            {
+                ids.forEach(id -> scrollIds.add(id.asText()));
+            }
+            else if (ids.isTextual())
+            {
+                scrollIds.add(ids.asText());
+            }
+        }
+
+        int freed = 0;
+        for (String scrollId : scrollIds)
+        {
+            if (scrolls.remove(scrollId) != null)
+            {
+                freed++;
+            }
+        }
+
+        ObjectNode result = NODES.objectNode();
+        result.put("succeeded", true);
+        result.put("num_freed", freed);
+        return new Reply(freed > 0 || scrollIds.isEmpty() ? OK : NOT_FOUND, result);
+    }
+
+    private static ObjectNode searchResult(String scrollId, Scroll scroll)
+    {
+        ObjectNode result = NODES.objectNode();
+        if (scrollId != null)
+        {
+            result.put("_scroll_id", scrollId);
+        }
+        result.put("took", 1);
+        result.put("timed_out", false);
+        ObjectNode hits = result.putObject("hits");
+        hits.put("total", scroll.hits.size());
+        hits.put("max_score", 1.0);
+        hits.putArray("hits").addAll(scroll.next());
+        return result;
+    }
+
+    private List<String> getIndexNames(String expression)
+    {
+        if (expression.equals("_all") || expression.equals("*"))
+        {
+            return new ArrayList<>(indices.keySet());
+        }
+        return Arrays.asList(expression.split(","));
+    }
+
+    private static Reply noHandler(String method, String path)
+    {
+        return error(BAD_REQUEST, "illegal_argument_exception", "no handler found for uri [" + path + "] and method [" + method + "]");
+    }
+
+    private static Reply indexNotFound(String name)
+    {
+        return error(NOT_FOUND, "index_not_found_exception", "no such index [" + name + "]");
+    }
+
+    private static Reply error(int status, String type, String reason)
+    {
+        ObjectNode cause = NODES.objectNode();
+        cause.put("type", type);
+        cause.put("reason", reason);
+
+        ObjectNode result = NODES.objectNode();
+        ObjectNode error = result.putObject("error");
+        error.putArray("root_cause").add(cause.deepCopy());
+        error.setAll(cause);
+        result.put("status", status);
+        return new Reply(status, result);
+    }
+
+    private static String getErrorType(int status)
+    {
+        switch (status)
+        {
+            case TOO_MANY_REQUESTS:
+                return "es_rejected_execution_exception";
+            case NOT_FOUND:
+                return "resource_not_found_exception";
+            default:
+                return status < SERVER_ERROR ? "illegal_argument_exception" : "unavailable_shards_exception";
+        }
+    }
+
+    private static ObjectNode generateMappings(int fieldCount)
+    {
+        ObjectNode mappings = NODES.objectNode();
+        ObjectNode properties = mappings.putObject(TYPE).putObject("properties");
+        for (int field = 0; field < fieldCount; field++)
+        {
+            properties.putObject("field" + field).put("type", field % 2 == 0 ? "keyword" : "long");
+        }
+        return mappings;
+    }
+
+    private static ObjectNode generateDocument(int document, int fieldCount)
+    {
+        ObjectNode source = NODES.objectNode();
+        for (int field = 0; field < fieldCount; field++)
+        {
+            if (field % 2 == 0)
+            {
+                source.put("field" + field, "value-" + document);
+            }
+            else
+            {
+                source.put("field" + field, (long) document * field);
+            }
+        }
+        return source;
+    }
+
+    private synchronized long draw(long minimum, long maximum)
+    {
+        return maximum <= minimum ? minimum : minimum + (long) (random.nextDouble() * (maximum - minimum + 1));
+    }
+
+    private synchronized boolean draw(double rate)
+    {
+        return rate > 0 && random.nextDouble() < rate;
+    }
+
+    private static void sleep(long milliseconds) throws InterruptedException
+    {
+        if (milliseconds > 0)
+        {
+            TimeUnit.MILLISECONDS.sleep(milliseconds);
+        }
+    }
+
+    private static byte[] readBody(HttpExchange exchange) throws IOException
+    {
+        InputStream input = exchange.getRequestBody();
+        if ("gzip".equalsIgnoreCase(exchange.getRequestHeaders().getFirst("Content-Encoding")))
+        {
+            input = new GZIPInputStream(input);
+        }
+
+        try (InputStream body = input)
+        {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[8192];
+            for (int read; (read = body.read(buffer)) != -1;)
+            {
+                output.write(buffer, 0, read);
+            }
+            return output.toByteArray();
+        }
+    }
+
+    private static Map<String, String> getQuery(String rawQuery)
+    {
+        Map<String, String> query = new HashMap<>();
+        if (rawQuery != null)
+        {
+            for (String parameter : rawQuery.split("&"))
+            {
+                int equals = parameter.indexOf('=');
+                String name = equals < 0 ? parameter : parameter.substring(0, equals);
+                String value = equals < 0 ? "" : parameter.substring(equals + 1);
+                query.put(decode(name), decode(value));
+            }
+        }
+        return query;
+    }
+
+    private static String decode(String value)
+    {
+        try
+        {
+            return URLDecoder.decode(value, UTF_8.name());
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Responds in the format that is accepted by the request.
+     */
+    private static void respond(HttpExchange exchange, Reply reply) throws IOException
+    {
+        Codec codec = Codec.forContentType(exchange.getRequestHeaders().getFirst("Accept"));
+        byte[] body = codec.getMapper().writeValueAsBytes(reply.body);
+        exchange.getResponseHeaders().set("Content-Type", codec.getMediaType());
+        exchange.sendResponseHeaders(reply.status, body.length);
+        try (OutputStream output = exchange.getResponseBody())
+        {
+            output.write(body);
+        }
+    }
+
+    /**
+     * Builds fake clusters.
+     */
+    static final class Builder
+    {
+        private int port;
+        private int nodeCount = 1;
+        private int indexCount;
+        private int fieldsPerIndex = 10;
+        private int documentsPerIndex;
+        private long minimumLatency;
+        private long maximumLatency;
+        private double errorRate;
+        private int errorStatus = 503;
+        private double rejectionRate;
+        private long seed;
+
+        private Builder()
+        {
+        }
+
+        /**
+         * Sets the port to listen on, where zero (the default) picks a free port.
+         */
+        Builder port(int port)
+        {
+            this.port = port;
+            return this;
+        }
+
+        Builder nodes(int nodeCount)
+        {
+            this.nodeCount = nodeCount;
+            return this;
+        }
+
+        Builder indices(int indexCount)
+        {
+            this.indexCount = indexCount;
+            return this;
+        }
+
+        /**
+         * Sets the number of fields in the mappings and documents of the synthesized indices.
+         */
+        Builder fieldsPerIndex(int fieldsPerIndex)
+        {
+            this.fieldsPerIndex = fieldsPerIndex;
+            return this;
+        }
+
+        Builder documentsPerIndex(int documentsPerIndex)
+        {
+            this.documentsPerIndex = documentsPerIndex;
+            return this;
+        }
+
+        /**
+         * Sets the latency of every request, in milliseconds.
+         */
+        Builder latency(long latency)
+        {
+            return latency(latency, latency);
+        }
+
+        /**
+         * Sets the range of the latency of every request, in milliseconds.
+         */
+        Builder latency(long minimum, long maximum)
+        {
+            this.minimumLatency = minimum;
+            this.maximumLatency = maximum;
+            return this;
+        }
+
+        /**
+         * Sets the rate, between zero and one, of requests that fail with the given status.
+         */
+        Builder errors(double errorRate, int errorStatus)
+        {
+            this.errorRate = errorRate;
+            this.errorStatus = errorStatus;
+            return this;
+        }
+
+        /**
+         * Sets the rate, between zero and one, of bulk items that are rejected with {@code 429 Too Many Requests}.
+         */
+        Builder bulkRejections(double rejectionRate)
+        {
+            this.rejectionRate = rejectionRate;
+            return this;
+        }
+
+        Builder seed(long seed)
+        {
+            this.seed = seed;
+            return this;
+        }
+
+        /**
+         * Starts the fake cluster.
+         */
+        FakeElasticsearch start() throws IOException
+        {
+            return new FakeElasticsearch(this);
+        }
+    }
+
+    /**
+     * An index, with its documents in the order they were first added.
+     */
+    private static final class FakeIndex
+    {
+        private final String name;
+        private final ObjectNode mappings;
+        private final Map<String, JsonNode> documents = new LinkedHashMap<>();
+        private long nextId;
+
+        private FakeIndex(String name, ObjectNode mappings)
+        {
+            this.name = name;
+            this.mappings = mappings;
+        }
+
+        synchronized int size()
+        {
+            return documents.size();
+        }
+
+        synchronized String nextId()
+        {
+            return "auto-" + nextId++;
+        }
+
+        synchronized JsonNode get(String id)
+        {
+            return documents.get(id);
+        }
+
+        synchronized JsonNode put(String id, JsonNode source)
+        {
+            return documents.put(id, source);
+        }
+
+        synchronized JsonNode putIfAbsent(String id, JsonNode source)
+        {
+            return documents.putIfAbsent(id, source);
+        }
+
+        synchronized boolean update(String id, JsonNode changes)
+        {
+            JsonNode document = documents.get(id);
+            if (document == null)
+            {
+                return false;
+            }
+            ObjectNode updated = ((ObjectNode) document).deepCopy();
+            if (changes.isObject())
+            {
+                updated.setAll((ObjectNode) changes);
+            }
+            documents.put(id, updated);
+            return true;
+        }
+
+        synchronized JsonNode remove(String id)
+        {
+            return documents.remove(id);
+        }
+
+        synchronized void addHits(List<ObjectNode> hits)
+        {
+            documents.forEach((id, source) ->
+            {
+                ObjectNode hit = NODES.objectNode();
+                hit.put("_index", name);
+                hit.put("_type", TYPE);
+                hit.put("_id", id);
+                hit.put("_score", 1.0);
+                hit.set("_source", source);
+                hits.add(hit);
+            });
+        }
+    }
+
+    /**
+     * The hits of a search, which are returned a page at a time.
+     */
+    private static final class Scroll
+    {
+        private final List<ObjectNode> hits;
+        private final int size;
+        private int position;
+
+        private Scroll(List<ObjectNode> hits, int size)
+        {
+            this.hits = hits;
+            this.size = size;
+        }
+
+        synchronized List<ObjectNode> next()
+        {
+            int end = Math.min(hits.size(), position + size);
+            List<ObjectNode> page = new ArrayList<>(hits.subList(position, end));
+            position = end;
+            return page;
+        }
+    }
+
+    /**
+     * A status and body to respond with.
+     */
+    private static final class Reply
+    {
+        private final int status;
+        private final JsonNode body;
+
+        private Reply(int status, JsonNode body)
+        {
+            this.status = status;
+            this.body = body;
+        }
+    }
+}
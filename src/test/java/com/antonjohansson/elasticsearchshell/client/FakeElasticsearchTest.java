@@ -0,0 +1,179 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import java.io.IOException;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+import com.antonjohansson.elasticsearchshell.domain.ClusterHealth;
+import com.antonjohansson.elasticsearchshell.domain.IndexMappings;
+import com.antonjohansson.elasticsearchshell.domain.node.Node;
+import com.fasterxml.jackson.databind.JsonNode;
+
+/**
+ * Unit tests of {@link FakeElasticsearch}.
+ */
+public class FakeElasticsearchTest extends Assert
+{
+    private FakeElasticsearch server;
+    private Client client;
+    private Transport transport;
+
+    @After
+    public void tearDown()
+    {
+        if (client != null)
+        {
+            client.close();
+        }
+        if (transport != null)
+        {
+            transport.close();
+        }
+        server.close();
+    }
+
+    private void start(FakeElasticsearch.Builder builder) throws IOException
+    {
+        server = builder.start();
+        Connection connection = server.connection();
+        connection.setCacheSize(0);
+        connection.setTransport("jdk");
+        client = new Client(connection, new PasswordEncrypter());
+        transport = Transport.of(connection);
+    }
+
+    private JsonNode send(TransportRequest request) throws IOException
+    {
+        try (TransportResponse response = transport.send("http://localhost:" + server.getPort(), request))
+        {
+            return Codec.JSON.getMapper().readTree(response.getBody());
+        }
+    }
+
+    @Test
+    public void test_topology() throws IOException
+    {
+        start(FakeElasticsearch.builder().nodes(100).indices(1000).fieldsPerIndex(50));
+
+        ClusterHealth health = client.getClusterHealth();
+        assertEquals(100, health.getNumberOfNodes());
+        assertEquals("green", health.getStatus());
+
+        assertEquals(1000, client.getIndexNames().size());
+        Map<String, IndexMappings> mappings = client.getMappings();
+        assertEquals(1000, mappings.size());
+        assertTrue(mappings.get("index-999").getMappings().toString().contains("field49"));
+
+        Node node = client.getNodeInfo("node-99");
+        assertEquals("node-99", node.getName());
+        assertEquals(0, client.getIndexStats("index-0").get().getPrimaries().getDocuments().getCount());
+    }
+
+    @Test
+    public void test_latency() throws IOException
+    {
+        start(FakeElasticsearch.builder().latency(100));
+
+        long start = System.nanoTime();
+        client.getClusterHealth();
+        assertTrue(System.nanoTime() - start >= 100_000_000L);
+    }
+
+    @Test
+    public void test_errors() throws IOException
+    {
+        start(FakeElasticsearch.builder().errors(1.0, 500));
+
+        try
+        {
+            client.getClusterHealth();
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("Unknown error received from the server", e.getMessage());
+        }
+        assertEquals(1, server.getRequestCount("/_cluster/health"));
+    }
+
+    @Test
+    public void test_bulk() throws IOException
+    {
+        start(FakeElasticsearch.builder());
+
+        String body = ""
+                + "{\"index\":{\"_index\":\"bulk-index\",\"_id\":\"1\"}}\n"
+                + "{\"name\":\"first\"}\n"
+                + "{\"create\":{\"_index\":\"bulk-index\",\"_id\":\"1\"}}\n"
+                + "{\"name\":\"duplicate\"}\n"
+                + "{\"index\":{}}\n"
+                + "{\"name\":\"second\"}\n"
+                + "{\"update\":{\"_id\":\"1\"}}\n"
+                + "{\"doc\":{\"updated\":true}}\n";
+
+        JsonNode result = send(TransportRequest.post("/{index}/_bulk", "bulk-index").body(body.getBytes(UTF_8)));
+
+        assertTrue(result.path("errors").asBoolean());
+        assertEquals(201, result.path("items").path(0).path("index").path("status").asInt());
+        assertEquals(409, result.path("items").path(1).path("create").path("status").asInt());
+        assertEquals(201, result.path("items").path(2).path("index").path("status").asInt());
+        assertEquals(200, result.path("items").path(3).path("update").path("status").asInt());
+        assertEquals(2, server.getDocumentCount("bulk-index"));
+        assertEquals("{\"name\":\"first\",\"updated\":true}", server.getDocument("bulk-index", "1").toString());
+    }
+
+    @Test
+    public void test_bulk_rejections() throws IOException
+    {
+        start(FakeElasticsearch.builder().bulkRejections(1.0));
+
+        JsonNode result = send(TransportRequest.post("/_bulk").body("{\"index\":{\"_index\":\"rejected\"}}\n{}\n".getBytes(UTF_8)));
+
+        assertTrue(result.path("errors").asBoolean());
+        assertEquals(429, result.path("items").path(0).path("index").path("status").asInt());
+        assertEquals(0, server.getDocumentCount("rejected"));
+    }
+
+    @Test
+    public void test_scroll() throws IOException
+    {
+        start(FakeElasticsearch.builder().indices(2).documentsPerIndex(3));
+
+        JsonNode page = send(TransportRequest.get("/index-0,index-1/_search").query("scroll", "1m").query("size", "4"));
+        String scrollId = page.path("_scroll_id").asText();
+        assertEquals(6, page.path("hits").path("total").asInt());
+        assertEquals(4, page.path("hits").path("hits").size());
+
+        page = send(TransportRequest.post("/_search/scroll").body(("{\"scroll\":\"1m\",\"scroll_id\":\"" + scrollId + "\"}").getBytes(UTF_8)));
+        assertEquals(2, page.path("hits").path("hits").size());
+        assertEquals("index-1", page.path("hits").path("hits").path(1).path("_index").asText());
+
+        page = send(TransportRequest.post("/_search/scroll").query("scroll_id", scrollId));
+        assertEquals(0, page.path("hits").path("hits").size());
+
+        JsonNode cleared = send(TransportRequest.delete("/_search/scroll").query("scroll_id", scrollId));
+        assertEquals(1, cleared.path("num_freed").asInt());
+    }
+}
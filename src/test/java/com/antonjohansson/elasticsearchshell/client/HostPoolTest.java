@@ -0,0 +1,296 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static com.antonjohansson.elasticsearchshell.client.HostPool.CIRCUIT_OPEN_TIME;
+import static com.antonjohansson.elasticsearchshell.client.HostPool.CIRCUIT_THRESHOLD;
+import static com.antonjohansson.elasticsearchshell.client.HostPool.MAXIMUM_BACKOFF;
+import static com.antonjohansson.elasticsearchshell.client.HostPool.MINIMUM_BACKOFF;
+import static com.antonjohansson.elasticsearchshell.client.HostPool.PROBE_INTERVAL;
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.client.HostPool.Host;
+import com.antonjohansson.elasticsearchshell.client.HostPool.Strategy;
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+
+/**
+ * Unit tests of {@link HostPool}.
+ */
+public class HostPoolTest extends Assert
+{
+    private final AtomicLong time = new AtomicLong();
+
+    private HostPool pool(Strategy strategy)
+    {
+        return new HostPool(asList("http://node1:9200", "http://node2:9200", "http://node3:9200"), strategy, time::get);
+    }
+
+    @Test
+    public void test_strategy_of()
+    {
+        assertEquals(Strategy.ROUND_ROBIN, Strategy.of("round-robin"));
+        assertEquals(Strategy.LEAST_LATENCY, Strategy.of("least-latency"));
+        assertEquals(Strategy.LEAST_LATENCY, Strategy.of("Least-Latency"));
+        assertEquals(Strategy.ROUND_ROBIN, Strategy.of(""));
+        assertEquals(Strategy.ROUND_ROBIN, Strategy.of(null));
+    }
+
+    @Test
+    public void test_round_robin()
+    {
+        HostPool pool = pool(Strategy.ROUND_ROBIN);
+
+        assertEquals(3, pool.size());
+        assertEquals("http://node1:9200", pool.next().getURL());
+        assertEquals("http://node2:9200", pool.next().getURL());
+        assertEquals("http://node3:9200", pool.next().getURL());
+        assertEquals("http://node1:9200", pool.next().getURL());
+    }
+
+    @Test
+    public void test_round_robin_skips_dead_hosts()
+    {
+        HostPool pool = pool(Strategy.ROUND_ROBIN);
+        Host node1 = pool.next();
+        pool.markDead(node1);
+
+        for (int i = 0; i < 4; i++)
+        {
+            assertNotSame(node1, pool.next());
+        }
+
+        time.set(MINIMUM_BACKOFF);
+        boolean chosen = false;
+        for (int i = 0; i < 3; i++)
+        {
+            chosen |= pool.next() == node1;
+        }
+        assertTrue(chosen);
+    }
+
+    @Test
+    public void test_least_latency()
+    {
+        HostPool pool = pool(Strategy.LEAST_LATENCY);
+        Host node1 = pool.next();
+        pool.markAlive(node1, 300);
+        Host node2 = pool.next();
+        pool.markAlive(node2, 100);
+        Host node3 = pool.next();
+        pool.markAlive(node3, 200);
+
+        assertEquals("http://node1:9200", node1.getURL());
+        assertEquals("http://node2:9200", node2.getURL());
+        assertEquals("http://node3:9200", node3.getURL());
+        assertSame(node2, pool.next());
+
+        // The latency is smoothed, so a single slow response only moves it partially
+        pool.markAlive(node2, 500);
+        assertSame(node3, pool.next());
+    }
+
+    @Test
+    public void test_least_latency_probes_other_hosts()
+    {
+        HostPool pool = pool(Strategy.LEAST_LATENCY);
+        Host node1 = pool.next();
+        pool.markAlive(node1, 1000);
+        Host node2 = pool.next();
+        pool.markAlive(node2, 100);
+        Host node3 = pool.next();
+        pool.markAlive(node3, 2000);
+
+        // Every probe goes to one of the slower hosts, in turn
+        for (int i = 3; i < PROBE_INTERVAL - 1; i++)
+        {
+            assertSame(node2, pool.next());
+        }
+        assertSame(node1, pool.next());
+        for (int i = 0; i < PROBE_INTERVAL - 1; i++)
+        {
+            assertSame(node2, pool.next());
+        }
+        assertSame(node3, pool.next());
+
+        // A host that has recovered is chosen again once a probe has measured it
+        for (int i = 0; i < PROBE_INTERVAL - 1; i++)
+        {
+            pool.next();
+        }
+        Host probed = pool.next();
+        assertSame(node1, probed);
+        for (int i = 0; i < 10; i++)
+        {
+            pool.markAlive(probed, 10);
+        }
+        assertSame(node1, pool.next());
+    }
+
+    @Test
+    public void test_backoff()
+    {
+        HostPool pool = new HostPool(asList("http://node1:9200", "http://node2:9200"), Strategy.ROUND_ROBIN, time::get);
+        Host node1 = pool.next();
+        Host node2 = pool.next();
+
+        pool.markDead(node1);
+        pool.markDead(node1);
+        pool.markDead(node2);
+
+        // All hosts are dead, so the one that is retried first is chosen
+        assertSame(node2, pool.next());
+
+        time.set(MINIMUM_BACKOFF);
+        assertSame(node2, pool.next());
+        assertSame(node2, pool.next());
+
+        time.set(2 * MINIMUM_BACKOFF);
+        pool.markAlive(node2, 1);
+        assertSame(node1, pool.next());
+        assertSame(node2, pool.next());
+    }
+
+    @Test
+    public void test_circuit_breaker()
+    {
+        HostPool pool = new HostPool(asList("http://node1:9200", "http://node2:9200"), Strategy.ROUND_ROBIN, time::get);
+        Host node1 = pool.next();
+        Host node2 = pool.next();
+
+        for (int i = 1; i < CIRCUIT_THRESHOLD; i++)
+        {
+            pool.markOverloaded(node1);
+        }
+        assertTrue(isChosen(pool, node1));
+
+        pool.markOverloaded(node1);
+        assertFalse(isChosen(pool, node1));
+        assertSame(node2, pool.next());
+
+        // The circuit is half open when the time has passed, and a single overload opens it again
+        time.set(CIRCUIT_OPEN_TIME);
+        assertTrue(isChosen(pool, node1));
+        pool.markOverloaded(node1);
+        assertFalse(isChosen(pool, node1));
+
+        time.set(2 * CIRCUIT_OPEN_TIME);
+        pool.markAlive(node1, 1);
+        pool.markOverloaded(node1);
+        assertTrue(isChosen(pool, node1));
+    }
+
+    private boolean isChosen(HostPool pool, Host host)
+    {
+        boolean chosen = false;
+        for (int i = 0; i < pool.size(); i++)
+        {
+            chosen |= pool.next() == host;
+        }
+        return chosen;
+    }
+
+    @Test
+    public void test_circuit_breaker_open_for_all_hosts()
+    {
+        HostPool pool = new HostPool(asList("http://node1:9200"), Strategy.ROUND_ROBIN, time::get);
+        Host node1 = pool.next();
+        for (int i = 0; i < CIRCUIT_THRESHOLD; i++)
+        {
+            pool.markOverloaded(node1);
+        }
+
+        try
+        {
+            pool.next();
+            fail("Expected an exception");
+        }
+        catch (ElasticsearchException e)
+        {
+            assertEquals("The cluster is overloaded, try again later", e.getMessage());
+        }
+    }
+
+    @Test
+    public void test_update()
+    {
+        HostPool pool = pool(Strategy.ROUND_ROBIN);
+        Host node1 = pool.next();
+        pool.markDead(node1);
+
+        pool.update(asList("http://node1:9200", "http://node4:9200", "http://node4:9200"));
+        assertEquals(asList("http://node1:9200", "http://node4:9200"), pool.getURLs());
+
+        // The state of the kept host is retained
+        assertEquals("http://node4:9200", pool.next().getURL());
+        assertEquals("http://node4:9200", pool.next().getURL());
+    }
+
+    @Test
+    public void test_update_falls_back_to_seeds()
+    {
+        HostPool pool = pool(Strategy.ROUND_ROBIN);
+        pool.update(asList("http://10.0.0.1:9200", "http://10.0.0.2:9200"));
+        assertEquals(5, pool.size());
+
+        Host sniffed1 = pool.next();
+        pool.markDead(sniffed1);
+        Host sniffed2 = pool.next();
+        pool.markDead(sniffed2);
+        assertEquals("http://10.0.0.1:9200", sniffed1.getURL());
+        assertEquals("http://10.0.0.2:9200", sniffed2.getURL());
+
+        // The seeds are only chosen while none of the hosts is alive
+        Host seed = pool.next();
+        assertTrue(seed.getURL().startsWith("http://node"));
+        pool.markAlive(seed, 100);
+
+        time.addAndGet(MINIMUM_BACKOFF);
+        assertTrue(pool.next().getURL().startsWith("http://10.0.0."));
+    }
+
+    @Test
+    public void test_update_without_hosts()
+    {
+        HostPool pool = pool(Strategy.ROUND_ROBIN);
+        pool.update(emptyList());
+
+        assertEquals(asList("http://node1:9200", "http://node2:9200", "http://node3:9200"), pool.getURLs());
+    }
+
+    @Test
+    public void test_maximum_backoff()
+    {
+        HostPool pool = new HostPool(asList("http://node1:9200", "http://node2:9200"), Strategy.ROUND_ROBIN, time::get);
+        Host node1 = pool.next();
+        for (int i = 0; i < 100; i++)
+        {
+            pool.markDead(node1);
+        }
+
+        time.set(MAXIMUM_BACKOFF - 1);
+        assertNotSame(node1, pool.next());
+        assertNotSame(node1, pool.next());
+
+        time.set(MAXIMUM_BACKOFF);
+        assertTrue(pool.next() == node1 || pool.next() == node1);
+    }
+}
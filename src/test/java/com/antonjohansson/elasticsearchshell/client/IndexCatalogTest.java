@@ -0,0 +1,186 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.util.Arrays.asList;
+import static java.util.Collections.emptyList;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link IndexCatalog}.
+ */
+public class IndexCatalogTest extends Assert
+{
+    private static final long TIME_TO_LIVE = 1000;
+
+    private final List<String> names = new ArrayList<>();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final AtomicLong time = new AtomicLong();
+    private final List<Runnable> tasks = new ArrayList<>();
+    private IndexCatalog catalog;
+
+    @Before
+    public void setUp()
+    {
+        names.addAll(asList("my-index", "data", "my-other-index", "logs-2017", "my"));
+        catalog = new IndexCatalog(this::load, tasks::add, TIME_TO_LIVE, time::get);
+    }
+
+    private Collection<String> load()
+    {
+        loads.incrementAndGet();
+        return new ArrayList<>(names);
+    }
+
+    private void runTasks()
+    {
+        List<Runnable> pending = new ArrayList<>(tasks);
+        tasks.clear();
+        pending.forEach(Runnable::run);
+    }
+
+    @Test
+    public void test_getNamesStartingWith()
+    {
+        assertEquals(asList("my", "my-index", "my-other-index"), catalog.getNamesStartingWith("my"));
+        assertEquals(asList("my-index"), catalog.getNamesStartingWith("my-i"));
+        assertEquals(asList("data", "logs-2017", "my", "my-index", "my-other-index"), catalog.getNamesStartingWith(""));
+        assertEquals(emptyList(), catalog.getNamesStartingWith("n"));
+        assertEquals(emptyList(), catalog.getNamesStartingWith("a"));
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void test_refreshes_in_background_when_expired()
+    {
+        catalog.getNamesStartingWith("my");
+        names.add("my-new-index");
+
+        time.set(TIME_TO_LIVE - 1);
+        assertEquals(asList("my", "my-index", "my-other-index"), catalog.getNamesStartingWith("my"));
+        assertTrue(tasks.isEmpty());
+
+        time.set(TIME_TO_LIVE);
+        assertEquals(asList("my", "my-index", "my-other-index"), catalog.getNamesStartingWith("my"));
+        catalog.getNamesStartingWith("my");
+        assertEquals(1, tasks.size());
+
+        runTasks();
+        assertEquals(asList("my", "my-index", "my-new-index", "my-other-index"), catalog.getNamesStartingWith("my"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void test_prefetch()
+    {
+        catalog.prefetch();
+        assertEquals(0, loads.get());
+        assertEquals(1, tasks.size());
+
+        runTasks();
+        catalog.prefetch();
+        assertEquals(asList("my", "my-index", "my-other-index"), catalog.getNamesStartingWith("my"));
+        assertEquals(1, loads.get());
+        assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    public void test_skips_refresh_when_executor_is_busy()
+    {
+        AtomicBoolean busy = new AtomicBoolean(true);
+        catalog = new IndexCatalog(this::load, task ->
+        {
+            if (busy.get())
+            {
+                throw new RejectedExecutionException();
+            }
+            tasks.add(task);
+        }, TIME_TO_LIVE, time::get);
+
+        catalog.prefetch();
+        assertEquals(0, loads.get());
+
+        busy.set(false);
+        catalog.prefetch();
+        assertEquals(1, tasks.size());
+        runTasks();
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    public void test_keeps_names_when_refresh_fails()
+    {
+        catalog = new IndexCatalog(() ->
+        {
+            if (loads.incrementAndGet() > 1)
+            {
+                throw new RuntimeException();
+            }
+            return names;
+        }, tasks::add, TIME_TO_LIVE, time::get);
+
+        catalog.getNamesStartingWith("data");
+        time.set(TIME_TO_LIVE);
+        catalog.getNamesStartingWith("data");
+        runTasks();
+
+        assertEquals(asList("data"), catalog.getNamesStartingWith("data"));
+        assertEquals(1, tasks.size());
+    }
+
+    @Test
+    public void test_invalidate()
+    {
+        catalog.getNamesStartingWith("my");
+        names.remove("my-index");
+        catalog.invalidate();
+
+        assertEquals(asList("my", "my-other-index"), catalog.getNamesStartingWith("my"));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    public void test_invalidate_while_loading()
+    {
+        // The catalog is invalidated while the names are loaded, so they must not be kept
+        catalog = new IndexCatalog(() ->
+        {
+            Collection<String> loaded = load();
+            if (loads.get() == 1)
+            {
+                catalog.invalidate();
+            }
+            return loaded;
+        }, tasks::add, TIME_TO_LIVE, time::get);
+
+        catalog.getNamesStartingWith("my");
+        names.remove("my-index");
+
+        assertEquals(asList("my", "my-other-index"), catalog.getNamesStartingWith("my"));
+        assertEquals(2, loads.get());
+    }
+}
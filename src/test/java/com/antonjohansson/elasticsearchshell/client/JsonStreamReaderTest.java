@@ -0,0 +1,123 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import java.io.IOException;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+/**
+ * Unit tests of {@link JsonStreamReader}.
+ */
+public class JsonStreamReaderTest extends Assert
+{
+    private static final String JSON = "{\"_shards\":{\"total\":2},\"indices\":{\"first\":{\"docs\":{\"count\":1}},\"second\":{\"docs\":{\"count\":2}},\"third\":{\"docs\":{\"count\":3}}}}";
+
+    private JsonParser parser(String json) throws IOException
+    {
+        return new JsonFactory().createParser(json);
+    }
+
+    @Test
+    public void test_constructor() throws Exception
+    {
+        int classModifiers = JsonStreamReader.class.getModifiers();
+        assertTrue("Expected class to be final", Modifier.isFinal(classModifiers));
+
+        Constructor<?>[] constructors = JsonStreamReader.class.getDeclaredConstructors();
+        assertEquals("Expected class to have one single constructor", 1, constructors.length);
+
+        Constructor<?> constructor = constructors[0];
+        assertFalse("Expected constructor to be inaccessible", constructor.isAccessible());
+
+        try
+        {
+            constructor.setAccessible(true);
+            constructor.newInstance();
+        }
+        finally
+        {
+            constructor.setAccessible(false);
+        }
+    }
+
+    @Test
+    public void test_moveTo() throws IOException
+    {
+        JsonParser parser = parser(JSON);
+        assertTrue(JsonStreamReader.moveTo(parser, "indices", "second", "docs", "count"));
+        assertEquals(2, parser.getIntValue());
+    }
+
+    @Test
+    public void test_moveTo_missing_field() throws IOException
+    {
+        assertFalse(JsonStreamReader.moveTo(parser(JSON), "indices", "fourth"));
+        assertFalse(JsonStreamReader.moveTo(parser(JSON), "missing"));
+    }
+
+    @Test
+    public void test_moveTo_through_non_object() throws IOException
+    {
+        assertFalse(JsonStreamReader.moveTo(parser(JSON), "indices", "first", "docs", "count", "value"));
+    }
+
+    @Test
+    public void test_moveTo_non_object_document() throws IOException
+    {
+        assertFalse(JsonStreamReader.moveTo(parser("[]"), "indices"));
+    }
+
+    @Test
+    public void test_forEachField() throws IOException
+    {
+        JsonParser parser = parser(JSON);
+        JsonStreamReader.moveTo(parser, "indices");
+
+        List<String> names = new ArrayList<>();
+        JsonStreamReader.forEachField(parser, (name, fieldParser) ->
+        {
+            names.add(name);
+            fieldParser.skipChildren();
+            return !name.equals("second");
+        });
+
+        assertEquals(2, names.size());
+        assertEquals("first", names.get(0));
+        assertEquals("second", names.get(1));
+        assertEquals(JsonToken.END_OBJECT, parser.getCurrentToken());
+    }
+
+    @Test
+    public void test_forEachField_on_non_object() throws IOException
+    {
+        JsonParser parser = parser(JSON);
+        JsonStreamReader.moveTo(parser, "indices", "first", "docs", "count");
+
+        List<String> names = new ArrayList<>();
+        JsonStreamReader.forEachField(parser, (name, fieldParser) -> names.add(name));
+        assertTrue(names.isEmpty());
+    }
+}
@@ -0,0 +1,133 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import static java.util.Arrays.asList;
+
+import java.util.ArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.client.ResponseCache.Statistics;
+
+/**
+ * Unit tests of {@link ResponseCache}.
+ */
+public class ResponseCacheTest extends Assert
+{
+    private final AtomicLong time = new AtomicLong();
+    private final AtomicInteger loads = new AtomicInteger();
+    private final ResponseCache cache = new ResponseCache(2, time::get);
+
+    private String load(String key)
+    {
+        return key + "-" + loads.incrementAndGet();
+    }
+
+    @Test
+    public void test_get()
+    {
+        assertEquals("a-1", cache.get("endpoint", "a", 1000, () -> load("a")));
+        assertEquals("a-1", cache.get("endpoint", "a", 1000, () -> load("a")));
+        assertEquals("b-2", cache.get("endpoint", "b", 1000, () -> load("b")));
+        assertEquals(2, cache.getSize());
+    }
+
+    @Test
+    public void test_get_expired()
+    {
+        cache.get("endpoint", "a", 1000, () -> load("a"));
+
+        time.set(999);
+        assertEquals("a-1", cache.get("endpoint", "a", 1000, () -> load("a")));
+
+        time.set(1000);
+        assertEquals("a-2", cache.get("endpoint", "a", 1000, () -> load("a")));
+    }
+
+    @Test
+    public void test_evicts_least_recently_used()
+    {
+        cache.get("endpoint", "a", 1000, () -> load("a"));
+        cache.get("endpoint", "b", 1000, () -> load("b"));
+        cache.get("endpoint", "a", 1000, () -> load("a"));
+        cache.get("endpoint", "c", 1000, () -> load("c"));
+
+        assertEquals(2, cache.getSize());
+        assertEquals("a-1", cache.get("endpoint", "a", 1000, () -> load("a")));
+        assertEquals("b-4", cache.get("endpoint", "b", 1000, () -> load("b")));
+    }
+
+    @Test
+    public void test_invalidate()
+    {
+        cache.get("endpoint", "a", 1000, () -> load("a"));
+        cache.get("endpoint", "b", 1000, () -> load("b"));
+        cache.invalidate("a", "missing");
+
+        assertEquals(1, cache.getSize());
+        assertEquals("a-3", cache.get("endpoint", "a", 1000, () -> load("a")));
+        assertEquals("b-2", cache.get("endpoint", "b", 1000, () -> load("b")));
+    }
+
+    @Test
+    public void test_invalidate_while_loading()
+    {
+        String value = cache.get("endpoint", "a", 1000, () ->
+        {
+            cache.invalidate("a");
+            return load("a");
+        });
+
+        assertEquals("a-1", value);
+        assertEquals(0, cache.getSize());
+    }
+
+    @Test
+    public void test_disabled()
+    {
+        ResponseCache disabled = new ResponseCache(0, time::get);
+
+        assertEquals("a-1", disabled.get("endpoint", "a", 1000, () -> load("a")));
+        assertEquals("a-2", disabled.get("endpoint", "a", 1000, () -> load("a")));
+        assertEquals(0, disabled.getSize());
+        assertEquals(0, disabled.getMaximumSize());
+    }
+
+    @Test
+    public void test_getStatistics()
+    {
+        cache.get("health", "a", 1000, () -> load("a"));
+        cache.get("health", "a", 1000, () -> load("a"));
+        cache.get("health", "a", 1000, () -> load("a"));
+        cache.get("info", "b", 1000, () -> load("b"));
+
+        assertEquals(asList("health", "info"), new ArrayList<>(cache.getStatistics().keySet()));
+
+        Statistics health = cache.getStatistics().get("health");
+        assertEquals(2, health.getHits());
+        assertEquals(1, health.getMisses());
+        assertEquals(2.0 / 3, health.getHitRatio(), 0.0001);
+
+        Statistics info = cache.getStatistics().get("info");
+        assertEquals(0, info.getHits());
+        assertEquals(1, info.getMisses());
+        assertEquals(0, info.getHitRatio(), 0.0001);
+    }
+}
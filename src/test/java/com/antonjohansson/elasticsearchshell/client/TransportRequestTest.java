@@ -0,0 +1,56 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.client;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+/**
+ * Unit tests of {@link TransportRequest}.
+ */
+public class TransportRequestTest extends Assert
+{
+    @Test
+    public void test_path_template()
+    {
+        TransportRequest request = TransportRequest.get("/_tasks/{taskId}/_cancel", "node1:42");
+        assertEquals("GET", request.getMethod());
+        assertEquals("/_tasks/node1:42/_cancel", request.getPath());
+    }
+
+    @Test
+    public void test_path_template_encodes_values()
+    {
+        TransportRequest request = TransportRequest.delete("/{indexName}", "my index/1");
+        assertEquals("/my%20index%2F1", request.getPath());
+    }
+
+    @Test
+    public void test_query_string()
+    {
+        TransportRequest request = TransportRequest.get("/_nodes/http")
+                .query("filter_path", "nodes.*.name,nodes.*.os")
+                .query("h", "index");
+
+        assertEquals("/_nodes/http?filter_path=nodes.*.name%2Cnodes.*.os&h=index", request.getURI());
+    }
+
+    @Test
+    public void test_uri_without_query_string()
+    {
+        assertEquals("/_mappings", TransportRequest.get("/_mappings").getURI());
+    }
+}
@@ -49,7 +49,21 @@ public class ConnectionManagerTest extends Assert
 
         writeLines(new File(connections, "stage01"), asList(
                 "host=stage",
-                "port=9200"));
+                "port=9200",
+                "cacheSize=0",
+                "indexNamesCacheTime=100",
+                "clusterInfoCacheTime=200",
+                "clusterHealthCacheTime=300",
+                "mappingsCacheTime=400",
+                "loadBalancing=least-latency",
+                "sniff=true",
+                "connectTimeout=1000",
+                "readTimeout=2000",
+                "commandTimeout=3000",
+                "compressResponses=false",
+                "compressRequests=true",
+                "format=smile",
+                "transport=jdk"));
 
         writeLines(new File(connections, "production01"), asList(
                 "host=production",
@@ -83,6 +97,32 @@ public class ConnectionManagerTest extends Assert
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void test_get_with_optional_properties()
+    {
+        Connection actual = manager.get(new ConnectionKey("stage01")).get();
+        Connection expected = new Connection();
+        expected.setName("stage01");
+        expected.setHost("stage");
+        expected.setPort(9200);
+        expected.setCacheSize(0);
+        expected.setIndexNamesCacheTime(100);
+        expected.setClusterInfoCacheTime(200);
+        expected.setClusterHealthCacheTime(300);
+        expected.setMappingsCacheTime(400);
+        expected.setLoadBalancing("least-latency");
+        expected.setSniff(true);
+        expected.setConnectTimeout(1000);
+        expected.setReadTimeout(2000);
+        expected.setCommandTimeout(3000);
+        expected.setCompressResponses(false);
+        expected.setCompressRequests(true);
+        expected.setFormat("smile");
+        expected.setTransport("jdk");
+
+        assertEquals(expected, actual);
+    }
+
     @Test
     public void test_add() throws IOException
     {
@@ -92,6 +132,19 @@ public class ConnectionManagerTest extends Assert
         connection.setPort(9201);
         connection.setUsername("sa");
         connection.setPassword("secret");
+        connection.setCacheSize(10);
+        connection.setIndexNamesCacheTime(100);
+        connection.setClusterInfoCacheTime(200);
+        connection.setClusterHealthCacheTime(300);
+        connection.setMappingsCacheTime(400);
+        connection.setLoadBalancing("least-latency");
+        connection.setSniff(true);
+        connection.setConnectTimeout(1000);
+        connection.setReadTimeout(2000);
+        connection.setCommandTimeout(3000);
+        connection.setCompressRequests(true);
+        connection.setFormat("cbor");
+        connection.setTransport("jdk");
 
         boolean result = manager.add(connection);
         assertTrue(result);
@@ -110,6 +163,20 @@ public class ConnectionManagerTest extends Assert
             assertEquals("9201", properties.getProperty("port"));
             assertEquals("sa", properties.getProperty("username"));
             assertEquals("secret", properties.getProperty("password"));
+            assertEquals("10", properties.getProperty("cacheSize"));
+            assertEquals("100", properties.getProperty("indexNamesCacheTime"));
+            assertEquals("200", properties.getProperty("clusterInfoCacheTime"));
+            assertEquals("300", properties.getProperty("clusterHealthCacheTime"));
+            assertEquals("400", properties.getProperty("mappingsCacheTime"));
+            assertEquals("least-latency", properties.getProperty("loadBalancing"));
+            assertEquals("true", properties.getProperty("sniff"));
+            assertEquals("1000", properties.getProperty("connectTimeout"));
+            assertEquals("2000", properties.getProperty("readTimeout"));
+            assertEquals("3000", properties.getProperty("commandTimeout"));
+            assertEquals("true", properties.getProperty("compressResponses"));
+            assertEquals("true", properties.getProperty("compressRequests"));
+            assertEquals("cbor", properties.getProperty("format"));
+            assertEquals("jdk", properties.getProperty("transport"));
         }
     }
 
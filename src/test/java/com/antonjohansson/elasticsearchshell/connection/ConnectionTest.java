@@ -19,6 +19,8 @@ import static java.util.Arrays.asList;
 
 import java.util.Collection;
 
+import org.junit.Test;
+
 import com.antonjohansson.elasticsearchshell.domain.AbstractDomainTest;
 
 /**
@@ -31,4 +33,26 @@ public class ConnectionTest extends AbstractDomainTest<Connection>
     {
         return asList("password");
     }
+
+    @Test
+    public void test_getURL()
+    {
+        Connection connection = new Connection();
+        connection.setHost("node1");
+        connection.setPort(9200);
+
+        assertEquals("http://node1:9200", connection.getURL());
+        assertEquals(asList("http://node1:9200"), connection.getURLs());
+    }
+
+    @Test
+    public void test_getURLs_with_multiple_hosts()
+    {
+        Connection connection = new Connection();
+        connection.setHost("node1, node2:9201,,[::1],[::2]:9202");
+        connection.setPort(9200);
+
+        assertEquals("http://node1:9200", connection.getURL());
+        assertEquals(asList("http://node1:9200", "http://node2:9201", "http://[::1]:9200", "http://[::2]:9202"), connection.getURLs());
+    }
 }
@@ -15,12 +15,6 @@
  */
 package com.antonjohansson.elasticsearchshell.domain.node;
 
-import java.util.HashMap;
-import java.util.Map;
-
-import org.junit.Test;
-
-import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.antonjohansson.elasticsearchshell.domain.AbstractDomainTest;
 
 /**
@@ -28,27 +22,4 @@ import com.antonjohansson.elasticsearchshell.domain.AbstractDomainTest;
  */
 public class NodesInfoTest extends AbstractDomainTest<NodesInfo>
 {
-    @Test
-    public void test_getNodeByName() throws Exception
-    {
-        Node node = new Node();
-        node.setName("node1");
-
-        Map<String, Node> nodes = new HashMap<>();
-        nodes.put("node1", node);
-
-        NodesInfo info = new NodesInfo();
-        info.setNodes(nodes);
-
-        Node actual = info.getNodeByName("node1");
-
-        assertEquals(node, actual);
-    }
-
-    @Test(expected = ElasticsearchException.class)
-    public void test_getNodeByName_not_found() throws Exception
-    {
-        NodesInfo info = new NodesInfo();
-        info.getNodeByName("node1");
-    }
 }
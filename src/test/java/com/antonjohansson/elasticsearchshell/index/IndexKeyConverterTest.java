@@ -19,9 +19,7 @@ import static java.util.Arrays.asList;
 import static org.mockito.Mockito.when;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 
 import org.junit.Assert;
 import org.junit.Before;
@@ -32,7 +30,7 @@ import org.springframework.shell.core.Completion;
 
 import com.antonjohansson.elasticsearchshell.client.Client;
 import com.antonjohansson.elasticsearchshell.client.ClientFactory;
-import com.antonjohansson.elasticsearchshell.domain.IndexMappings;
+import com.antonjohansson.elasticsearchshell.client.IndexCatalog;
 
 /**
  * Unit tests of {@link IndexKeyConverter}.
@@ -41,6 +39,7 @@ public class IndexKeyConverterTest extends Assert
 {
     private @Mock ClientFactory clientFactory;
     private @Mock Client client;
+    private @Mock IndexCatalog indexCatalog;
     private IndexKeyConverter converter;
 
     @Before
@@ -49,13 +48,9 @@ public class IndexKeyConverterTest extends Assert
         MockitoAnnotations.initMocks(this);
         converter = new IndexKeyConverter(clientFactory);
 
-        Map<String, IndexMappings> mappings = new HashMap<>();
-        mappings.put("my-index", null);
-        mappings.put("my-other-index", null);
-        mappings.put("data", null);
-
         when(clientFactory.getClient()).thenReturn(client);
-        when(client.getMappings()).thenReturn(mappings);
+        when(client.getIndexCatalog()).thenReturn(indexCatalog);
+        when(indexCatalog.getNamesStartingWith("my")).thenReturn(asList("my-index", "my-other-index"));
     }
 
     @Test
@@ -24,6 +24,8 @@ import org.junit.Assert;
 import org.junit.Before;
 import org.junit.Test;
 
+import com.antonjohansson.elasticsearchshell.connection.Connection;
+
 /**
  * Unit tests of {@link SessionManager}.
  */
@@ -95,6 +97,13 @@ public class SessionManagerTest extends Assert
         assertEquals(1, getSessionNames().size());
     }
 
+    @Test
+    public void test_get_session()
+    {
+        assertEquals(manager.getCurrentSession(), manager.getSession(new SessionKey("default")).get());
+        assertFalse(manager.getSession(new SessionKey("non-existing-session")).isPresent());
+    }
+
     @Test
     public void test_removing_non_existing_session()
     {
@@ -139,6 +148,23 @@ public class SessionManagerTest extends Assert
         assertEquals(expected, actual);
     }
 
+    @Test
+    public void test_is_connected()
+    {
+        Connection connection = new Connection();
+        connection.setName("my-connection");
+        manager.getCurrentSession().setConnection(connection);
+        manager.newSession();
+
+        assertTrue(manager.isConnected("my-connection"));
+        assertFalse(manager.isConnected("other-connection"));
+
+        SessionKey key = new SessionKey();
+        key.setName("default");
+        manager.remove(key);
+        assertFalse(manager.isConnected("my-connection"));
+    }
+
     private List<String> getSessionNames()
     {
         List<String> sessionNames = new ArrayList<>();
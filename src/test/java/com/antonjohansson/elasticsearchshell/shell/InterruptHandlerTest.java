@@ -0,0 +1,54 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.shell;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.common.CommandContext;
+
+/**
+ * Unit tests of {@link InterruptHandler}.
+ */
+public class InterruptHandlerTest extends Assert
+{
+    @Test
+    public void test_cancels_running_command()
+    {
+        InterruptHandler handler = new InterruptHandler();
+        CommandContext context = CommandContext.begin();
+        try
+        {
+            assertTrue(handler.interrupt());
+            assertTrue(context.isCancelled());
+        }
+        finally
+        {
+            context.end();
+        }
+    }
+
+    @Test
+    public void test_does_not_cancel_ended_command()
+    {
+        InterruptHandler handler = new InterruptHandler();
+        CommandContext context = CommandContext.begin();
+        context.end();
+
+        assertFalse(handler.interrupt());
+        assertFalse(context.isCancelled());
+    }
+}
@@ -70,7 +70,7 @@ public class ClusterCommandsTest extends AbstractCommandTest<ClusterCommands>
     @Test
     public void test_green_health()
     {
-        when(client.getClusterHealth()).thenReturn(health("green"));
+        when(client.getCurrentClusterHealth()).thenReturn(health("green"));
 
         CommandResult result = shell().executeCommand("health");
         assertTrue(result.isSuccess());
@@ -81,7 +81,7 @@ public class ClusterCommandsTest extends AbstractCommandTest<ClusterCommands>
     @Test
     public void test_yellow_health()
     {
-        when(client.getClusterHealth()).thenReturn(health("yellow"));
+        when(client.getCurrentClusterHealth()).thenReturn(health("yellow"));
 
         CommandResult result = shell().executeCommand("health");
         assertTrue(result.isSuccess());
@@ -92,7 +92,7 @@ public class ClusterCommandsTest extends AbstractCommandTest<ClusterCommands>
     @Test
     public void test_red_health()
     {
-        when(client.getClusterHealth()).thenReturn(health("red"));
+        when(client.getCurrentClusterHealth()).thenReturn(health("red"));
 
         CommandResult result = shell().executeCommand("health");
         assertTrue(result.isSuccess());
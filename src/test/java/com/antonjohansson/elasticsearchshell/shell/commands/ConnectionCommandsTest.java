@@ -18,6 +18,8 @@ package com.antonjohansson.elasticsearchshell.shell.commands;
 import static com.antonjohansson.elasticsearchshell.domain.TestDataUtils.createItem;
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.RED;
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.WHITE;
+import static java.util.concurrent.CompletableFuture.completedFuture;
+import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
@@ -25,14 +27,17 @@ import static org.mockito.Mockito.when;
 import java.util.Optional;
 
 import org.junit.Test;
+import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.springframework.shell.core.CommandResult;
 
 import com.antonjohansson.elasticsearchshell.client.Client;
 import com.antonjohansson.elasticsearchshell.client.ClientFactory;
+import com.antonjohansson.elasticsearchshell.client.ResponseCache;
 import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.connection.ConnectionKey;
 import com.antonjohansson.elasticsearchshell.connection.ConnectionManager;
+import com.antonjohansson.elasticsearchshell.domain.ClusterHealth;
 import com.antonjohansson.elasticsearchshell.domain.ClusterInfo;
 import com.antonjohansson.elasticsearchshell.session.Session;
 import com.antonjohansson.elasticsearchshell.session.SessionManager;
@@ -62,6 +67,8 @@ public class ConnectionCommandsTest extends AbstractCommandTest<ConnectionComman
 
         when(clientFactory.getClient()).thenReturn(client);
         when(client.getClusterInfo()).thenReturn(createItem(ClusterInfo.class, 1));
+        when(client.getClusterInfoAsync()).thenReturn(completedFuture(createItem(ClusterInfo.class, 1)));
+        when(client.getClusterHealthAsync()).thenReturn(completedFuture(createItem(ClusterHealth.class, 1)));
     }
 
     @Test
@@ -97,6 +104,7 @@ public class ConnectionCommandsTest extends AbstractCommandTest<ConnectionComman
         CommandResult result = shell().executeCommand("disconnect");
         assertTrue(result.isSuccess());
         assertNull(session.getConnection());
+        verify(clientFactory).evict(createItem(Connection.class, 1));
     }
 
     @Test
@@ -108,6 +116,39 @@ public class ConnectionCommandsTest extends AbstractCommandTest<ConnectionComman
         assertFalse(result.isSuccess());
     }
 
+    @Test
+    public void test_cacheStats()
+    {
+        ResponseCache cache = new ResponseCache(10, () -> 0);
+        cache.get("cluster-health", "/_cluster/health", 1000, () -> "green");
+        cache.get("cluster-health", "/_cluster/health", 1000, () -> "green");
+        cache.get("mappings", "/_mappings", 1000, () -> "mappings");
+        when(client.getResponseCache()).thenReturn(cache);
+        when(sessionManager.getCurrentSession()).thenReturn(SESSION_WITH_CONNECTION);
+
+        CommandResult result = shell().executeCommand("cache-stats");
+        assertTrue(result.isSuccess());
+
+        InOrder inOrder = inOrder(console);
+        inOrder.verify(console).writeLine("The response cache holds %d of at most %d responses", WHITE, 2, 10);
+        inOrder.verify(console).writeLine("  %s: %d hits, %d misses (%.1f%% hit ratio)", WHITE, "cluster-health", 1L, 1L, 50.0);
+        inOrder.verify(console).writeLine("  %s: %d hits, %d misses (%.1f%% hit ratio)", WHITE, "mappings", 0L, 1L, 0.0);
+        inOrder.verifyNoMoreInteractions();
+    }
+
+    @Test
+    public void test_cacheStats_when_disabled()
+    {
+        when(client.getResponseCache()).thenReturn(new ResponseCache(0, () -> 0));
+        when(sessionManager.getCurrentSession()).thenReturn(SESSION_WITH_CONNECTION);
+
+        CommandResult result = shell().executeCommand("cache-stats");
+        assertTrue(result.isSuccess());
+
+        verify(console).writeLine("The response cache is disabled for this connection", WHITE);
+        verifyNoMoreInteractions(console);
+    }
+
     @Test
     public void test_connect()
     {
@@ -119,8 +160,22 @@ public class ConnectionCommandsTest extends AbstractCommandTest<ConnectionComman
         assertTrue(result.isSuccess());
         assertEquals(createItem(Connection.class, 1), session.getConnection());
 
-        verify(console).writeLine("Connected to cluster '%s' (version %s)", WHITE, "clusterName1", "number1");
+        verify(console).writeLine("Connected to cluster '%s' (version %s, status %s)", WHITE, "clusterName1", "number1", "status1");
         verifyNoMoreInteractions(console);
+        verify(client).prefetch();
+    }
+
+    @Test
+    public void test_connect_evicts_previous_connection()
+    {
+        Session session = createItem(Session.class, 2);
+        when(sessionManager.getCurrentSession()).thenReturn(session);
+        when(connectionManager.get(new ConnectionKey("my-connection"))).thenReturn(Optional.of(createItem(Connection.class, 1)));
+
+        CommandResult result = shell().executeCommand("connect my-connection");
+        assertTrue(result.isSuccess());
+        assertEquals(createItem(Connection.class, 1), session.getConnection());
+        verify(clientFactory).evict(createItem(Connection.class, 2));
     }
 
     @Test
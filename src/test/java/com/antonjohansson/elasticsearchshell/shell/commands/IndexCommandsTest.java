@@ -19,20 +19,33 @@ import static com.antonjohansson.elasticsearchshell.client.ClientTestData.ACTUAL
 import static com.antonjohansson.elasticsearchshell.domain.TestDataUtils.createItem;
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.RED;
 import static com.antonjohansson.elasticsearchshell.shell.output.ConsoleColor.WHITE;
+import static java.util.Arrays.asList;
+import static org.apache.commons.io.FileUtils.forceMkdir;
+import static org.apache.commons.io.FileUtils.writeLines;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.inOrder;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.springframework.shell.core.CommandResult;
 
+import com.antonjohansson.elasticsearchshell.client.BulkOptions;
+import com.antonjohansson.elasticsearchshell.client.BulkStatistics;
 import com.antonjohansson.elasticsearchshell.client.Client;
 import com.antonjohansson.elasticsearchshell.client.ClientFactory;
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
 import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.domain.Index;
 import com.antonjohansson.elasticsearchshell.domain.IndexSettings;
@@ -59,9 +72,10 @@ public class IndexCommandsTest extends AbstractCommandTest<IndexCommands>
         command().setClientFactory(clientFactory);
         command().setConsole(console);
         command().setSessionManager(sessionManager);
+        command().setConfigurationPath(new File("target/configuration"));
 
         when(clientFactory.getClient()).thenReturn(client);
-        when(client.getMappings()).thenReturn(ACTUAL_ALL_MAPPINGS);
+        when(client.getMappings("my-index")).thenReturn(Optional.of(ACTUAL_ALL_MAPPINGS.get("my-index")));
         when(client.createIndex("new-index", index())).thenReturn(true);
         when(client.getIndexStats("test-index")).thenReturn(Optional.of(createItem(IndexStatsContainer.class, 1)));
         when(client.deleteIndex("test-index")).thenReturn(true);
@@ -89,7 +103,7 @@ public class IndexCommandsTest extends AbstractCommandTest<IndexCommands>
 
         InOrder inOrder = inOrder(client, clientFactory, console, session, sessionManager);
         inOrder.verify(clientFactory).getClient();
-        inOrder.verify(client).getMappings();
+        inOrder.verify(client).getMappings("my-index");
         inOrder.verify(console).writeLine("Now using '%s'. Index has %d types.", WHITE, new IndexKey("my-index"), 2);
         inOrder.verify(sessionManager).getCurrentSession();
         inOrder.verify(session).setCurrentIndex(new IndexKey("my-index"));
@@ -113,7 +127,7 @@ public class IndexCommandsTest extends AbstractCommandTest<IndexCommands>
 
         InOrder inOrder = inOrder(client, clientFactory, console, session, sessionManager);
         inOrder.verify(clientFactory).getClient();
-        inOrder.verify(client).getMappings();
+        inOrder.verify(client).getMappings("non-existing-index");
         inOrder.verify(console).writeLine("No index named 'non-existing-index' was found", RED);
         inOrder.verifyNoMoreInteractions();
     }
@@ -226,4 +240,96 @@ public class IndexCommandsTest extends AbstractCommandTest<IndexCommands>
         inOrder.verify(console).writeLine("Could not remove index 'test-index'", RED);
         verifyNoMoreInteractions(console, client);
     }
+
+    @Test
+    public void test_bulkLoad() throws IOException
+    {
+        File file = new File("target/bulk/commands.ndjson");
+        forceMkdir(file.getParentFile());
+        writeLines(file, asList("{\"index\":{}}", "{}"));
+
+        BulkOptions options = new BulkOptions();
+        options.setWorkers(4);
+        options.setBatchSize(500);
+        options.setBatchBytes(1024 * 1024);
+        options.setAdaptive(true);
+        options.setTargetLatency(500);
+        options.setDeadLetterFile(Paths.get("target/bulk/commands.ndjson.failed"));
+        options.setCheckpointFile(checkpointFile(file));
+        options.setResume(true);
+
+        when(session.getCurrentIndex()).thenReturn(new IndexKey("test-index"));
+        when(client.bulkLoad(eq("test-index"), eq(file.toPath()), eq(options), any())).thenAnswer(invocation ->
+        {
+            Consumer<BulkStatistics> listener = invocation.getArgument(3);
+            listener.accept(new BulkStatistics(1000, 0, 1024 * 1024, 1_000_000_000L, 250, 3));
+            return new BulkStatistics(2000, 2, 4 * 1024 * 1024, 2_000_000_000L, 500, 4);
+        });
+
+        CommandResult result = shell().executeCommand("bulk-load target/bulk/commands.ndjson --workers 4 --batch-size 500 --batch-megabytes 1 --adaptive --target-latency 500 --resume");
+        assertTrue(result.isSuccess());
+
+        InOrder inOrder = inOrder(console, client);
+        inOrder.verify(console).writeLine("Loaded %,d documents (%.1f MB), %,.0f documents/s, %.1f MB/s, %d workers sending batches of %d", 1000L, 1.0, 1000.0, 1.0, 3, 250);
+        inOrder.verify(console).writeLine("Loaded %,d documents (%.1f MB) into '%s' in %.1f s, %,.0f documents/s, %.1f MB/s", WHITE, 2000L, 4.0, "test-index", 2.0, 1000.0, 2.0);
+        inOrder.verify(console).writeLine("%,d actions failed, see '%s'", RED, 2L, Paths.get("target/bulk/commands.ndjson.failed"));
+        verifyNoMoreInteractions(console);
+    }
+
+    @Test
+    public void test_bulkLoad_interrupted() throws IOException
+    {
+        File file = new File("target/bulk/commands.ndjson");
+        forceMkdir(file.getParentFile());
+        writeLines(file, asList("{\"index\":{}}", "{}"));
+
+        BulkOptions options = new BulkOptions();
+        options.setDeadLetterFile(Paths.get("target/bulk/commands.ndjson.failed"));
+        options.setCheckpointFile(checkpointFile(file));
+
+        when(session.getCurrentIndex()).thenReturn(new IndexKey("test-index"));
+        when(client.bulkLoad(eq("test-index"), eq(file.toPath()), eq(options), any())).thenThrow(new ElasticsearchException("Could not connect to the server"));
+
+        CommandResult result = shell().executeCommand("bulk-load target/bulk/commands.ndjson");
+        assertTrue(result.isSuccess());
+
+        verify(console).writeLine("Could not connect to the server, the load can be resumed with --resume", RED);
+        verifyNoMoreInteractions(console);
+    }
+
+    private Path checkpointFile(File file)
+    {
+        Path absolutePath = file.toPath().toAbsolutePath().normalize();
+        return Paths.get("target/configuration/checkpoints", String.format("test-index-commands.ndjson-%08x", absolutePath.toString().hashCode()));
+    }
+
+    @Test
+    public void test_bulkLoad_invalid_options()
+    {
+        when(session.getCurrentIndex()).thenReturn(new IndexKey("test-index"));
+
+        assertTrue(shell().executeCommand("bulk-load target/bulk/commands.ndjson --batch-size 0").isSuccess());
+        assertTrue(shell().executeCommand("bulk-load target/bulk/commands.ndjson --workers 0").isSuccess());
+        assertTrue(shell().executeCommand("bulk-load target/bulk/commands.ndjson --batch-megabytes 2048").isSuccess());
+        assertTrue(shell().executeCommand("bulk-load target/bulk/commands.ndjson --target-latency -1").isSuccess());
+
+        InOrder inOrder = inOrder(console);
+        inOrder.verify(console).writeLine("--batch-size must be between 1 and 2147483647", RED);
+        inOrder.verify(console).writeLine("--workers must be between 1 and 256", RED);
+        inOrder.verify(console).writeLine("--batch-megabytes must be between 1 and 2047", RED);
+        inOrder.verify(console).writeLine("--target-latency must be between 1 and 2147483647", RED);
+        verifyNoMoreInteractions(console, client);
+    }
+
+    @Test
+    public void test_bulkLoad_missing_file()
+    {
+        when(session.getCurrentIndex()).thenReturn(new IndexKey("test-index"));
+
+        CommandResult result = shell().executeCommand("bulk-load target/bulk/missing.ndjson");
+        assertTrue(result.isSuccess());
+
+        verify(console).writeLine("Could not read file 'target/bulk/missing.ndjson'", RED);
+        verifyNoMoreInteractions(console, client);
+    }
 }
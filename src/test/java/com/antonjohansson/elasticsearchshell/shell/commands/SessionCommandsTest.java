@@ -24,12 +24,16 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
 import static org.mockito.Mockito.when;
 
+import java.util.Optional;
+
 import org.junit.Test;
 import org.mockito.InOrder;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.springframework.shell.core.CommandResult;
 
+import com.antonjohansson.elasticsearchshell.client.ClientFactory;
+import com.antonjohansson.elasticsearchshell.connection.Connection;
 import com.antonjohansson.elasticsearchshell.session.Session;
 import com.antonjohansson.elasticsearchshell.session.SessionKey;
 import com.antonjohansson.elasticsearchshell.session.SessionManager;
@@ -40,6 +44,7 @@ import com.antonjohansson.elasticsearchshell.shell.output.Console;
  */
 public class SessionCommandsTest extends AbstractCommandTest<SessionCommands>
 {
+    private @Mock ClientFactory clientFactory;
     private @Mock Console console;
     private @Mock SessionManager manager;
 
@@ -47,12 +52,14 @@ public class SessionCommandsTest extends AbstractCommandTest<SessionCommands>
     protected void initMocks()
     {
         command().setConsole(console);
+        command().setClientFactory(clientFactory);
         command().setManager(manager);
 
         when(manager.getSessionNames()).thenReturn(asList("default", "name1", "session1", "session2"));
         when(manager.getCurrentSession()).thenReturn(createItem(Session.class, 1));
         when(manager.setCurrentSession(new SessionKey("default"))).thenReturn(true);
         when(manager.remove(new SessionKey("default"))).thenReturn(true);
+        when(manager.getSession(new SessionKey("default"))).thenReturn(Optional.of(createItem(Session.class, 2)));
         when(manager.newSession("new-session")).thenReturn(true);
     }
 
@@ -99,7 +106,9 @@ public class SessionCommandsTest extends AbstractCommandTest<SessionCommands>
         assertTrue(result.isSuccess());
 
         InOrder inOrder = inOrder();
+        inOrder.verify(manager).getSession(new SessionKey("default"));
         inOrder.verify(manager).remove(new SessionKey("default"));
+        inOrder.verify(clientFactory).evict(createItem(Connection.class, 2));
         inOrder.verify(console).writeLine("Removed session '%s'", WHITE, new SessionKey("default"));
         inOrder.verifyNoMoreInteractions();
     }
@@ -173,6 +182,6 @@ public class SessionCommandsTest extends AbstractCommandTest<SessionCommands>
 
     private InOrder inOrder()
     {
-        return Mockito.inOrder(console, manager);
+        return Mockito.inOrder(clientFactory, console, manager);
     }
 }
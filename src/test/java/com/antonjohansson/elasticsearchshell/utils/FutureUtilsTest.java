@@ -0,0 +1,81 @@
+/**
+ * Copyright 2017 Anton Johansson
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.antonjohansson.elasticsearchshell.utils;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Modifier;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import com.antonjohansson.elasticsearchshell.common.ElasticsearchException;
+
+/**
+ * Unit tests of {@link FutureUtils}.
+ */
+public class FutureUtilsTest extends Assert
+{
+    @Test
+    public void test_constructor() throws Exception
+    {
+        int classModifiers = FutureUtils.class.getModifiers();
+        assertTrue("Expected class to be final", Modifier.isFinal(classModifiers));
+
+        Constructor<?>[] constructors = FutureUtils.class.getDeclaredConstructors();
+        assertEquals("Expected class to have one single constructor", 1, constructors.length);
+
+        Constructor<?> constructor = constructors[0];
+        assertFalse("Expected constructor to be inaccessible", constructor.isAccessible());
+
+        try
+        {
+            constructor.setAccessible(true);
+            constructor.newInstance();
+        }
+        finally
+        {
+            constructor.setAccessible(false);
+        }
+    }
+
+    @Test
+    public void test_join()
+    {
+        assertEquals("value", FutureUtils.join(CompletableFuture.completedFuture("value")));
+    }
+
+    @Test(expected = ElasticsearchException.class)
+    public void test_join_with_runtime_exception()
+    {
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(() ->
+        {
+            throw new ElasticsearchException("Error");
+        });
+        FutureUtils.join(future);
+    }
+
+    @Test(expected = CompletionException.class)
+    public void test_join_with_error()
+    {
+        CompletableFuture<String> future = CompletableFuture.supplyAsync(() ->
+        {
+            throw new AssertionError();
+        });
+        FutureUtils.join(future);
+    }
+}